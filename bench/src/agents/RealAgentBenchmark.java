@@ -0,0 +1,123 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package agents;
+
+import environment.OccupancyGrid;
+import java.awt.Polygon;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.BenchmarkScenario;
+
+/**
+ * Integration of one sensor reading into an explorer's occupancy grid. Every call works on its own
+ * copy of the grid, so every call sees the same exploration state. The copies are made before each
+ * iteration; the calls of an iteration are timed as one batch and reported per call.
+ *
+ * @author Christian Clausen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = RealAgentBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = RealAgentBenchmark.BATCH)
+@OperationsPerInvocation(RealAgentBenchmark.BATCH)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class RealAgentBenchmark {
+
+    static final int BATCH = 1000;
+
+    @Param({"maze1", "library"})
+    String map;
+
+    RealAgent explorer;
+    OccupancyGrid grid;
+    double[] sensorData;
+    Polygon freeSpace;
+    OccupancyGrid[] grids = new OccupancyGrid[BATCH];
+    int next;
+
+    @Setup
+    public void setUp() {
+        BenchmarkScenario scenario = BenchmarkScenario.explore(map);
+        explorer = scenario.getExplorer();
+        grid = explorer.getOccupancyGrid().copy();
+        sensorData = scenario.sense(explorer);
+        freeSpace = explorer.findRadialPolygon(sensorData, explorer.getSenseRange(), 0, 180);
+    }
+
+    @Setup(Level.Iteration)
+    public void copyGrids() {
+        for (int i = 0; i < BATCH; i++) {
+            grids[i] = grid.copy();
+        }
+        next = 0;
+        explorer.resetDirtyCells();
+    }
+
+    @Benchmark
+    public OccupancyGrid updateGrid() {
+        explorer.occGrid = grids[next++];
+        explorer.updateGrid(sensorData);
+        return explorer.occGrid;
+    }
+
+    @Benchmark
+    public OccupancyGrid updateFreeAndSafeSpace() {
+        explorer.occGrid = grids[next++];
+        explorer.updateFreeAndSafeSpace(freeSpace, null);
+        return explorer.occGrid;
+    }
+}
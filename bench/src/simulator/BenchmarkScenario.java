@@ -0,0 +1,162 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import agents.RealAgent;
+import batch.BatchJob;
+import config.RobotTeamConfig;
+import config.SimConstants;
+import config.SimulatorConfig;
+import environment.Environment;
+import environment.OccupancyGrid;
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Collections;
+
+/**
+ * Fixed exploration state for the benchmarks: a map from environments/ explored by two frontier
+ * based robots for a fixed number of cycles with a fixed seed. Benchmarks are run from the project
+ * directory.
+ *
+ * @author Christian Clausen
+ */
+public class BenchmarkScenario {
+
+    public static final long SEED = 42;
+    public static final int CYCLES = 20;
+
+    private final SimulationFramework simulation;
+    private final SimulatorConfig simConfig;
+    private final RayCaster rayCaster;
+
+    private BenchmarkScenario(SimulationFramework simulation, SimulatorConfig simConfig) {
+        this.simulation = simulation;
+        this.simConfig = simConfig;
+        this.rayCaster = new RayCaster(simConfig.getEnvironment());
+    }
+
+    /**
+     * Runs a deterministic simulation up to the fixed exploration state.
+     *
+     * @param map name of the map, "maze1" or "library"
+     * @return the scenario after CYCLES cycles
+     */
+    public static BenchmarkScenario explore(String map) {
+        BatchJob job = new BatchJob(map,
+                SimConstants.DEFAULT_SIMCONF_DIRECTORY + "frontierbased_periodicReturn_directLine",
+                SimConstants.DEFAULT_TEAMCONF_DIRECTORY + "frontierbased_2_" + map,
+                SimConstants.DEFAULT_ENV_DIRECTORY + map + ".png",
+                Collections.<String, Object>singletonMap("sim.agentThreads", 1), SEED, null);
+        SimulatorConfig simConfig = job.loadSimulatorConfig();
+        simConfig.setLogAgents(false);
+        simConfig.setLogData(false);
+        simConfig.setLogScreenshots(false);
+        RobotTeamConfig team = job.loadRobotTeamConfig();
+
+        SimulationFramework simulation = new SimulationFramework(team, simConfig);
+        simulation.start();
+        for (int i = 0; i < CYCLES; i++) {
+            simulation.simulationCycle();
+        }
+        simulation.kill();
+        return new BenchmarkScenario(simulation, simConfig);
+    }
+
+    public Environment getEnvironment() {
+        return simConfig.getEnvironment();
+    }
+
+    public RealAgent[] getAgents() {
+        return simulation.getAgents();
+    }
+
+    /**
+     * @return the first explorer, the base station is agent 0
+     */
+    public RealAgent getExplorer() {
+        return simulation.getAgents()[1];
+    }
+
+    /**
+     * @param agent the sensing agent
+     * @return the laser range data the agent senses at its location
+     */
+    public double[] sense(RealAgent agent) {
+        rayCaster.aim(agent, agent.getLocation());
+        rayCaster.cast(0, RayCaster.NUM_RAYS);
+        return rayCaster.getRanges();
+    }
+
+    /**
+     * @param grid an occupancy grid
+     * @param start start of a path
+     * @param distance wanted length of the path, in cells
+     * @return a free cell away from obstacles that is reachable from start in about distance steps,
+     * or the farthest one if the known area is smaller
+     */
+    public static Point freeCellAtPathDistance(OccupancyGrid grid, Point start, int distance) {
+        int[][] depth = new int[grid.width][grid.height];
+        ArrayDeque<Point> queue = new ArrayDeque<>();
+        queue.add(start);
+        depth[start.x][start.y] = 1;
+        Point last = start;
+        while (!queue.isEmpty()) {
+            Point p = queue.poll();
+            last = p;
+            if (depth[p.x][p.y] > distance) {
+                break;
+            }
+            for (int[] d : new int[][]{{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+                int x = p.x + d[0];
+                int y = p.y + d[1];
+                if (x >= 0 && y >= 0 && x < grid.width && y < grid.height && depth[x][y] == 0
+                        && grid.freeSpaceAt(x, y) && !grid.obstacleWithinDistance(x, y, SimConstants.WALL_DISTANCE)) {
+                    depth[x][y] = depth[p.x][p.y] + 1;
+                    queue.add(new Point(x, y));
+                }
+            }
+        }
+        return last;
+    }
+}
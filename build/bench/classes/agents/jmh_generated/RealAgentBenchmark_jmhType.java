@@ -0,0 +1,4 @@
+package agents.jmh_generated;
+public class RealAgentBenchmark_jmhType extends RealAgentBenchmark_jmhType_B3 {
+}
+
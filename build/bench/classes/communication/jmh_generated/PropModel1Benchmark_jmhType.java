@@ -0,0 +1,4 @@
+package communication.jmh_generated;
+public class PropModel1Benchmark_jmhType extends PropModel1Benchmark_jmhType_B3 {
+}
+
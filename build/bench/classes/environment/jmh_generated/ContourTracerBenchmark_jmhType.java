@@ -0,0 +1,4 @@
+package environment.jmh_generated;
+public class ContourTracerBenchmark_jmhType extends ContourTracerBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package environment.jmh_generated;
+public class OccupancyGridBenchmark_jmhType extends OccupancyGridBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package environment.jmh_generated;
+public class SkeletonBenchmark_jmhType extends SkeletonBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package path.jmh_generated;
+public class PathBenchmark_jmhType extends PathBenchmark_jmhType_B3 {
+}
+
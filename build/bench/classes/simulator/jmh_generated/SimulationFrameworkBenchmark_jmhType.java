@@ -0,0 +1,4 @@
+package simulator.jmh_generated;
+public class SimulationFrameworkBenchmark_jmhType extends SimulationFrameworkBenchmark_jmhType_B3 {
+}
+
@@ -43,13 +43,16 @@
  */
 package Logging;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 
 /**
  *
  * @author Victor
  */
-public class AgentStats {
+public class AgentStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     //stores the stats on agent's progress; this is mostly used
     //for logging / to observe agent's behaviour
 
@@ -47,12 +47,15 @@ package agents;
 import config.RobotConfig;
 import config.SimConstants;
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 
-abstract public class Agent {
+abstract public class Agent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     int robotNumber;        // Robot's number.  CONSTANT.  Does not change throughout run.
     String name;            // Name
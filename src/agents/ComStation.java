@@ -54,6 +54,8 @@ import java.awt.Point;
  */
 public class ComStation extends RealAgent {
 
+    private static final long serialVersionUID = 1L;
+
     public ComStation(int envWidth, int envHeight, RobotConfig robot, SimulatorConfig simConfig) {
         super(envWidth, envHeight, robot, simConfig, null);
         this.setChild(1);
@@ -51,7 +51,9 @@ import config.RobotConfig.roletype;
 import config.SimConstants;
 import config.SimulatorConfig;
 import environment.Frontier;
+import environment.IntCellSet;
 import environment.OccupancyGrid;
+import environment.RowSpans;
 import environment.TopologicalMap;
 import exploration.Exploration;
 import exploration.FrontierExploration;
@@ -65,10 +67,11 @@ import exploration.rendezvous.RendezvousAgentData;
 import exploration.rendezvous.RendezvousStrategyFactory;
 import java.awt.Point;
 import java.awt.Polygon;
-import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
+import java.util.Random;
 import path.Path;
 import simulator.SimulationFramework;
 
@@ -78,6 +81,8 @@ import simulator.SimulationFramework;
  */
 public class RealAgent extends Agent {
 
+    private static final long serialVersionUID = 1L;
+
     AgentStats stats;
     private boolean missionComplete; // true only when mission complete (env fully explored)
 
@@ -87,6 +92,12 @@ public class RealAgent extends Agent {
     OccupancyGrid occGrid;
     // List of cells changed since last step (For faster update of image)
     LinkedList<Point> dirtyCells;
+    private transient RowSpans dirtySpans; // cells sensed since last step, for the image too
+    private transient RowSpans sensedSpans; // reused by updateFreeAndSafeSpace()
+    // reused by updateGrid()
+    private transient Polygon gridPolygon;
+    private transient byte[] gridScratch;
+    private transient int[] gridQueue;
 
     // Frontiers
     PriorityQueue<Frontier> frontiers;
@@ -113,7 +124,7 @@ public class RealAgent extends Agent {
     private SimulatorConfig simConfig;
 
     // Used only for logging - direct reference to other agents. DO NOT use this for anything else
-    private SimulationFramework simFramework;
+    private transient SimulationFramework simFramework; // not part of checkpoints, set again on restore
     private int oldTimeElapsed;
     private boolean stepFinished;
 
@@ -122,6 +133,12 @@ public class RealAgent extends Agent {
      * again).
      */
     private int occupied = 0;
+    private Random random = new Random(); // all random decisions of this agent, seeded by the simulation
+    private Random walkRandom; // random walk steps, null to use random
+    // Pose of the last sensor update and grid version right after it, to detect repeated scans
+    private Point lastScanLocation;
+    private double lastScanHeading;
+    private long lastScanGridVersion;
     Exploration exploration;
     private String dynamicInfo;
     private int originalChild;
@@ -231,6 +248,17 @@ public class RealAgent extends Agent {
 
     public void resetDirtyCells() {
         dirtyCells = new LinkedList<Point>();
+        getDirtySpans().clear();
+    }
+
+    /**
+     * @return the cells sensed since the dirty cells were reset, in addition to getDirtyCells()
+     */
+    public RowSpans getDirtySpans() {
+        if (dirtySpans == null) {
+            dirtySpans = new RowSpans();
+        }
+        return dirtySpans;
     }
 
     public void addDirtyCells(LinkedList<Point> newDirt) {
@@ -299,6 +327,34 @@ public class RealAgent extends Agent {
         this.simFramework = simFramework;
     }
 
+    /**
+     * Source of all random decisions of this agent. Each agent has its own generator so the result
+     * does not depend on the order in which the agents are stepped.
+     *
+     * @return the agents random generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @return the generator of RandomWalk steps, the agent's own generator unless another was set
+     */
+    public Random getWalkRandom() {
+        return (walkRandom != null) ? walkRandom : random;
+    }
+
+    /**
+     * @param walkRandom generator of RandomWalk steps, null to use the agent's own generator
+     */
+    public void setWalkRandom(Random walkRandom) {
+        this.walkRandom = walkRandom;
+    }
+
     public Point getNextPathPoint() {
         return path.nextPoint();
     }
@@ -483,7 +539,7 @@ public class RealAgent extends Agent {
             setState(AgentState.AKTIVE);
         }
         //shall we go out of service?
-        if (Math.random() < SimConstants.PROB_OUT_OF_SERVICE) {
+        if (random.nextDouble() < SimConstants.PROB_OUT_OF_SERVICE) {
             if ((timeElapsed > (robotNumber * 150)) && (robotNumber > 0)) {
                 setState(AgentState.OutOfService);
             }
@@ -607,6 +663,9 @@ public class RealAgent extends Agent {
             //newSafeSpace = findRadialPolygon(sensorData, safeRange, 0, 180);
             updateObstacles(newFreeSpace);
             updateFreeAndSafeSpace(newFreeSpace, null);
+            lastScanLocation = getLocation();
+            lastScanHeading = heading;
+            lastScanGridVersion = occGrid.getVersion();
         }
 
         // NEW METHOD FLOOD FILL
@@ -615,6 +674,19 @@ public class RealAgent extends Agent {
         this.getStats().incrementEnergyConsumption(energyCunsumption);
     }
 
+    /**
+     * A sensor update only sets cells to what the scan sensed. Repeating the last scan from the same
+     * pose on a grid that did not change since then can not change anything.
+     *
+     * @param nextLoc the location the agent will sense from
+     * @return true if sensing at nextLoc would repeat the last scan exactly
+     */
+    public boolean isScanUnchanged(Point nextLoc) {
+        return lastScanLocation != null && nextLoc.equals(lastScanLocation)
+                && nextLoc.x == x && nextLoc.y == y && heading == lastScanHeading
+                && occGrid.getVersion() == lastScanGridVersion;
+    }
+
     /**
      * Calculates the standard-path from where the agent is to the given goal with optimizations
      *
@@ -749,9 +821,10 @@ public class RealAgent extends Agent {
         boolean iAmCloserToBase = (ag.timeToBase() > timeToBase()); //buffer to prevent oscillations
 
         if (iAmCloserToBase) {
-            for (Point point : ag.occGrid.getOwnedCells()) {
-                if (occGrid.isGotRelayed(point.x, point.y)) {
-                    occGrid.setGotUnrelayed(point.x, point.y);
+            IntCellSet owned = ag.occGrid.getOwnedCells();
+            for (int cell = owned.nextCell(0); cell >= 0; cell = owned.nextCell(cell + 1)) {
+                if (occGrid.isGotRelayed(owned.getX(cell), owned.getY(cell))) {
+                    occGrid.setGotUnrelayed(owned.getX(cell), owned.getY(cell));
                     new_counter++;
                 }
             }
@@ -795,9 +868,15 @@ public class RealAgent extends Agent {
 
     }
 
+    // cell states of updateGrid()
+    private static final byte GRID_UNKNOWN = 0;
+    private static final byte GRID_OUTLINE = 1;
+    private static final byte GRID_FREE = 2;
+    private static final byte GRID_OBSTACLE = 4;
+    private static final byte GRID_QUEUED = -1;
+
     protected void updateGrid(double sensorData[]) {
-        Point first, second;
-        double dist, angle;
+        double angle;
         int currX, currY;
         double currRayAngle;
         int currRayX, currRayY;
@@ -810,7 +889,11 @@ public class RealAgent extends Agent {
         int safeRange = (int) (sensRange * SimConstants.SAFE_RANGE / 100);
 
         // To create a polygon, add robot at start and end
-        Polygon polygon = new Polygon();
+        if (gridPolygon == null) {
+            gridPolygon = new Polygon();
+        }
+        Polygon polygon = gridPolygon;
+        polygon.reset();
         polygon.addPoint(x, y);
 
         //For every degree
@@ -831,16 +914,28 @@ public class RealAgent extends Agent {
         polygon.addPoint(x, y);
 
         // determine mins and maxes of polygon
-        int xmin = polygon.getBounds().x;
-        int ymin = polygon.getBounds().y;
-
-        // Create temp grid
-        int[][] tempGrid = new int[polygon.getBounds().width + 1][polygon.getBounds().height + 1];
-        for (int i = 0; i < polygon.getBounds().width + 1; i++) {
-            for (int j = 0; j < polygon.getBounds().height + 1; j++) {
-                tempGrid[i][j] = 0;
-            }
+        int xmin = Integer.MAX_VALUE;
+        int ymin = Integer.MAX_VALUE;
+        int xmax = Integer.MIN_VALUE;
+        int ymax = Integer.MIN_VALUE;
+        for (int i = 0; i < polygon.npoints; i++) {
+            xmin = Math.min(xmin, polygon.xpoints[i]);
+            ymin = Math.min(ymin, polygon.ypoints[i]);
+            xmax = Math.max(xmax, polygon.xpoints[i]);
+            ymax = Math.max(ymax, polygon.ypoints[i]);
         }
+        int width = xmax - xmin;
+        int height = ymax - ymin;
+
+        // Temp grid, cell (i, j) of the polygon's bounding box is at j * (width + 1) + i
+        int stride = width + 1;
+        int cells = stride * (height + 1);
+        if (gridScratch == null || gridScratch.length < cells) {
+            gridScratch = new byte[cells];
+            gridQueue = new int[cells];
+        }
+        byte[] tempGrid = gridScratch;
+        Arrays.fill(tempGrid, 0, cells, GRID_UNKNOWN);
 
         /*
          * ******************************************
@@ -848,14 +943,16 @@ public class RealAgent extends Agent {
         //   I   Make outline of polygon
         // go through all points in scan, set lines between them to obstacle
         for (int i = 0; i < polygon.npoints - 1; i++) {
-            first = new Point(polygon.xpoints[i], polygon.ypoints[i]);
-            second = new Point(polygon.xpoints[i + 1], polygon.ypoints[i + 1]);
-            dist = first.distance(second);
-            angle = Math.atan2(second.y - first.y, second.x - first.x);
-            for (int j = 0; j < dist; j++) {
-                currX = (int) (first.x + j * Math.cos(angle));
-                currY = (int) (first.y + j * Math.sin(angle));
-                tempGrid[currX - xmin][currY - ymin] = 1;
+            int firstX = polygon.xpoints[i];
+            int firstY = polygon.ypoints[i];
+            int dx = polygon.xpoints[i + 1] - firstX;
+            int dy = polygon.ypoints[i + 1] - firstY;
+            long squaredDist = (long) dx * dx + (long) dy * dy;
+            angle = Math.atan2(dy, dx);
+            for (int j = 0; (long) j * j < squaredDist; j++) {
+                currX = (int) (firstX + j * Math.cos(angle));
+                currY = (int) (firstY + j * Math.sin(angle));
+                tempGrid[(currY - ymin) * stride + currX - xmin] = GRID_OUTLINE;
             }
         }
 
@@ -863,38 +960,43 @@ public class RealAgent extends Agent {
          * ******************************************
          */
         //   II  Fill free space from inside
-        // first, create
-        LinkedList<Point> toFill = new LinkedList<Point>();
-        Point start = new Point((int) (x + 1 * Math.cos(heading) - xmin), (int) (y + 1 * Math.sin(heading) - ymin));
+        int startX = (int) (x + 1 * Math.cos(heading) - xmin);
+        int startY = (int) (y + 1 * Math.sin(heading) - ymin);
+        if (startX < 0 || startX > width || startY < 0 || startY > height) {
+            return;
+        }
 
         // if start is obstacle (robot right in front of wall), don't bother updating anything
-        if (occGrid.obstacleAt(start.x, start.y)) {
+        if (occGrid.obstacleAt(startX, startY)) {
             return;
         }
 
-        Point curr;
-        toFill.add(start);
+        int[] toFill = gridQueue;
+        int queued = 0;
+        toFill[queued++] = startY * stride + startX;
 
-        while (!toFill.isEmpty()) {
-            curr = toFill.pop();
-            tempGrid[curr.x][curr.y] = 2;
+        while (queued > 0) {
+            int curr = toFill[--queued];
+            int currI = curr % stride;
+            int currJ = curr / stride;
+            tempGrid[curr] = GRID_FREE;
 
             // add neighbours
-            if (curr.x - 1 >= 0 && tempGrid[curr.x - 1][curr.y] == 0) {
-                tempGrid[curr.x - 1][curr.y] = -1;
-                toFill.add(new Point(curr.x - 1, curr.y));
+            if (currI - 1 >= 0 && tempGrid[curr - 1] == GRID_UNKNOWN) {
+                tempGrid[curr - 1] = GRID_QUEUED;
+                toFill[queued++] = curr - 1;
             }
-            if (curr.x + 1 <= polygon.getBounds().width && tempGrid[curr.x + 1][curr.y] == 0) {
-                tempGrid[curr.x + 1][curr.y] = -1;
-                toFill.add(new Point(curr.x + 1, curr.y));
+            if (currI + 1 <= width && tempGrid[curr + 1] == GRID_UNKNOWN) {
+                tempGrid[curr + 1] = GRID_QUEUED;
+                toFill[queued++] = curr + 1;
             }
-            if (curr.y - 1 >= 0 && tempGrid[curr.x][curr.y - 1] == 0) {
-                tempGrid[curr.x][curr.y - 1] = -1;
-                toFill.add(new Point(curr.x, curr.y - 1));
+            if (currJ - 1 >= 0 && tempGrid[curr - stride] == GRID_UNKNOWN) {
+                tempGrid[curr - stride] = GRID_QUEUED;
+                toFill[queued++] = curr - stride;
             }
-            if (curr.y + 1 <= polygon.getBounds().height && tempGrid[curr.x][curr.y + 1] == 0) {
-                tempGrid[curr.x][curr.y + 1] = -1;
-                toFill.add(new Point(curr.x, curr.y + 1));
+            if (currJ + 1 <= height && tempGrid[curr + stride] == GRID_UNKNOWN) {
+                tempGrid[curr + stride] = GRID_QUEUED;
+                toFill[queued++] = curr + stride;
             }
         }
 
@@ -904,17 +1006,22 @@ public class RealAgent extends Agent {
         //   III Fill in obstacles
         // go through all points in polygon (avoid first and last because it's the robot)
         for (int i = 1; i < polygon.npoints - 2; i++) {
-            first = new Point(polygon.xpoints[i], polygon.ypoints[i]);
-            second = new Point(polygon.xpoints[i + 1], polygon.ypoints[i + 1]);
+            int firstX = polygon.xpoints[i];
+            int firstY = polygon.ypoints[i];
+            int secondX = polygon.xpoints[i + 1];
+            int secondY = polygon.ypoints[i + 1];
+            int dx = secondX - firstX;
+            int dy = secondY - firstY;
+            long squaredDist = (long) dx * dx + (long) dy * dy;
 
             // if they are close enough, fill line between them
-            if (first.distance(x, y) < (sensRange - 2) && second.distance(x, y) < (sensRange - 2)
-                    && first.distance(second) < 5) {
-                angle = Math.atan2(second.y - first.y, second.x - first.x);
-                for (double j = 0; j < first.distance(second); j++) {
-                    currX = (int) (first.x + j * Math.cos(angle));
-                    currY = (int) (first.y + j * Math.sin(angle));
-                    tempGrid[currX - xmin][currY - ymin] = 4;
+            if (isCloser(firstX - x, firstY - y, sensRange - 2) && isCloser(secondX - x, secondY - y, sensRange - 2)
+                    && squaredDist < 5 * 5) {
+                angle = Math.atan2(dy, dx);
+                for (int j = 0; (long) j * j < squaredDist; j++) {
+                    currX = (int) (firstX + j * Math.cos(angle));
+                    currY = (int) (firstY + j * Math.sin(angle));
+                    tempGrid[(currY - ymin) * stride + currX - xmin] = GRID_OBSTACLE;
                 }
             }
         }
@@ -923,26 +1030,44 @@ public class RealAgent extends Agent {
          * ******************************************
          */
         //   IV  Update real grid
-        for (int i = 0; i < polygon.getBounds().width; i++) {
-            for (int j = 0; j < polygon.getBounds().height; j++) {
-                if (tempGrid[i][j] == 4) {
+        RowSpans dirt = getDirtySpans();
+        for (int j = 0; j < height; j++) {
+            int dirtFromI = -1; // start of the run of changed cells
+            for (int i = 0; i < width; i++) {
+                byte state = tempGrid[j * stride + i];
+                if (state == GRID_OBSTACLE) {
                     occGrid.setObstacleAt(i + xmin, j + ymin);
-                    dirtyCells.add(new Point(i + xmin, j + ymin));
-                } else if (tempGrid[i][j] == 2) {
-                    if ((new Point(x, y)).distance(new Point(i + xmin, j + ymin)) < safeRange) { // &&
+                } else if (state == GRID_FREE) {
+                    if (isCloser(i + xmin - x, j + ymin - y, safeRange)) { // &&
                         //angleDiff(Math.atan2((j+ymin)-y, (i+xmin)-x), heading) < 80)
                         occGrid.setSafeSpaceAt(i + xmin, j + ymin);
-                        dirtyCells.add(new Point(i + xmin, j + ymin));
                     } else {
                         occGrid.setFreeSpaceAt(i + xmin, j + ymin);
-                        dirtyCells.add(new Point(i + xmin, j + ymin));
-
                     }
+                } else {
+                    if (dirtFromI >= 0) {
+                        dirt.add(j + ymin, dirtFromI + xmin, i - 1 + xmin);
+                        dirtFromI = -1;
+                    }
+                    continue;
+                }
+                if (dirtFromI < 0) {
+                    dirtFromI = i;
                 }
             }
+            if (dirtFromI >= 0) {
+                dirt.add(j + ymin, dirtFromI + xmin, width - 1 + xmin);
+            }
         }
     }
 
+    /**
+     * @return true if the vector (dx, dy) is shorter than distance
+     */
+    private static boolean isCloser(int dx, int dy, int distance) {
+        return distance > 0 && (long) dx * dx + (long) dy * dy < (long) distance * distance;
+    }
+
     protected int angleDiff(double theta1, double theta2) {
         //System.out.println(theta1 + " " + theta2);
         int angle1 = (int) (180 / Math.PI * theta1 + 360) % 360;
@@ -952,25 +1077,33 @@ public class RealAgent extends Agent {
     }
 
     protected void updateFreeAndSafeSpace(Polygon newFreeSpace, Polygon newSafeSpace) {
-        // May be possible to do some optimization here, I think a lot of cells are checked unnecessarily
         boolean sensedNew = false;
-        Rectangle bounds = newFreeSpace.getBounds();
-        int width = Math.min(bounds.x + bounds.width, occGrid.width - 1);
-        int height = Math.min(bounds.y + bounds.height, occGrid.height - 1);
-        for (int i = Math.max(bounds.x, 0); i <= width; i++) {
-            for (int j = Math.max(bounds.y, 0); j <= height; j++) {
-                try {
-                    if (newFreeSpace.contains(i, j) && !occGrid.freeSpaceAt(i, j)) {
-                        if (!occGrid.obstacleAt(i, j)) {
-                            sensedNew = true;
-                            occGrid.setFreeSpaceAt(i, j);
-                            dirtyCells.add(new Point(i, j));
-                        }
+        if (sensedSpans == null) {
+            sensedSpans = new RowSpans();
+        }
+        // the cells for which newFreeSpace.contains() is true, row by row
+        sensedSpans.clear();
+        sensedSpans.addPolygon(newFreeSpace, occGrid.width, occGrid.height);
+        RowSpans dirt = getDirtySpans();
+        for (int s = 0; s < sensedSpans.size(); s++) {
+            int j = sensedSpans.getY(s);
+            int toX = sensedSpans.getToX(s);
+            int newFromX = -1; // start of the run of cells sensed for the first time
+            for (int i = sensedSpans.getFromX(s); i <= toX; i++) {
+                if (!occGrid.freeSpaceAt(i, j) && !occGrid.obstacleAt(i, j)) {
+                    sensedNew = true;
+                    occGrid.setFreeSpaceAt(i, j);
+                    if (newFromX < 0) {
+                        newFromX = i;
                     }
-                } catch (ArrayIndexOutOfBoundsException e) {
-                    //not interresting... but should not happen (at least not often)
+                } else if (newFromX >= 0) {
+                    dirt.add(j, newFromX, i - 1);
+                    newFromX = -1;
                 }
             }
+            if (newFromX >= 0) {
+                dirt.add(j, newFromX, toX);
+            }
         }
 
         //update stats for reporting/logging
@@ -60,6 +60,8 @@ import java.awt.Point;
  */
 public class TeammateAgent extends Agent {
 
+    private static final long serialVersionUID = 1L;
+
     int timeLastCentralCommand;
     /* units of time elapsed since command
                                      received from ComStation */
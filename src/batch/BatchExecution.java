@@ -44,6 +44,7 @@
 
 package batch;
 
+import batch.BatchJobResult.Status;
 import config.RobotTeamConfig;
 import config.SimConstants;
 import config.SimulatorConfig;
@@ -51,15 +52,31 @@ import gui.MainConsole;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import simulator.SimulationEngine;
+import simulator.SimulationFramework;
 
 /**
+ * Runs a list of simulations on a fixed number of worker threads. A worker takes the next job as
+ * soon as it is free; every job has a time limit and is retried if it fails. Jobs that do not set
+ * the number of agent threads get an equal share of the processors. The outcome of every job is
+ * written to a result file, totals to a summary file.
  *
  * @author Christian Clausen
  */
@@ -67,80 +84,279 @@ public class BatchExecution {
 
     private static final Logger LOGGER = Logger.getLogger(BatchExecution.class.getName());
 
-    //private MainConsole console;
-    //private List<SimulatorConfig> configs;
-    private List<String[]> configFiles;
-    //private RobotTeamConfig team;
+    private List<BatchJob> jobs;
     int num_threads = 2;
+    private long jobTimeout = SimConstants.BATCH_JOB_TIMEOUT;
+    private int maxRetries = SimConstants.BATCH_JOB_RETRIES;
+    private String resultFilename = SimConstants.DEFAULT_LOG_DIRECTORY + "batchResults.csv";
+    private String summaryFilename = SimConstants.DEFAULT_LOG_DIRECTORY + "batchSummary.txt";
 
+    /**
+     * @param batchfile a parameter sweep (*.json, see ParameterSweep) or a batch file listing the
+     * number of threads followed by three lines per job: simulator config, team config and
+     * environment; null for a single default job
+     */
     public BatchExecution(String batchfile) {
-        configFiles = new ArrayList<>();
+        jobs = new ArrayList<>();
         if (batchfile != null) {
-            if (!loadBatchConfig(batchfile)) {
+            boolean loaded = batchfile.endsWith(".json") ? loadSweep(batchfile) : loadBatchConfig(batchfile);
+            if (!loaded) {
                 System.exit(1);
             }
         } else {
-            String[] co = {SimConstants.DEFAULT_SIMCONF_DIRECTORY + "frontierbased_periodicReturn",
-                SimConstants.DEFAULT_TEAMCONF_DIRECTORY + "frontierbased_1_maze1_100",
-                SimConstants.DEFAULT_ENV_DIRECTORY + "maze1.png"
-            };
-            configFiles.add(co);
+            jobs.add(new BatchJob("Batch 0",
+                    SimConstants.DEFAULT_SIMCONF_DIRECTORY + "frontierbased_periodicReturn",
+                    SimConstants.DEFAULT_TEAMCONF_DIRECTORY + "frontierbased_1_maze1_100",
+                    SimConstants.DEFAULT_ENV_DIRECTORY + "maze1.png"));
         }
     }
 
-    public void run() {
-        HashMap<Integer, Thread> threads = new HashMap<>();
-        int batch_counter = 0;
-        int counter_threads = 0;
-        Iterator<String[]> c_it = configFiles.iterator();
-        while (c_it.hasNext()) {
-            while (c_it.hasNext() && counter_threads < num_threads) {
-                String[] confs = c_it.next();
-                String name = "Batch " + batch_counter;
-
-                SimulatorConfig conf = new SimulatorConfig();
-                if (!conf.loadSimulatorConfig(confs[0])) {
-                    System.err.println("Could not load Config-file:" + confs[0]);
-                    continue;
-                }
-                RobotTeamConfig team = new RobotTeamConfig();
-                if (!team.loadConfig(confs[1])) {
-                    System.err.println("Could not load Team-file:" + confs[1]);
-                    continue;
-                }
-                boolean loaded = conf.loadEnvironment(confs[2]);
-                if (!loaded) {
-                    System.err.println(name + ": Could not load env: " + confs[2]);
-                    continue;
-                }
+    /**
+     * @param jobs the jobs to run
+     * @param threads number of jobs run at the same time
+     */
+    public BatchExecution(List<BatchJob> jobs, int threads) {
+        this.jobs = new ArrayList<>(jobs);
+        num_threads = threads;
+    }
+
+    /**
+     * @param seconds wall clock time after which a job is stopped, 0 for no limit
+     */
+    public void setJobTimeout(long seconds) {
+        jobTimeout = seconds;
+    }
+
+    /**
+     * @param retries how often a failed job is run again
+     */
+    public void setMaxRetries(int retries) {
+        maxRetries = retries;
+    }
+
+    public void setNumThreads(int threads) {
+        num_threads = threads;
+    }
+
+    /**
+     * Runs all jobs and blocks until every one of them has finished.
+     *
+     * @return the result of every job, in the order the jobs finished
+     */
+    public List<BatchJobResult> run() {
+        AtomicInteger workerCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, num_threads), (runnable) -> {
+            Thread worker = new Thread(runnable, "BatchWorker-" + workerCounter.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        });
+        // the simulations run on threads of their own, so a worker can give up one that hangs
+        AtomicInteger simulationCounter = new AtomicInteger();
+        ExecutorService simulations = Executors.newCachedThreadPool((runnable) -> {
+            Thread thread = new Thread(runnable, "BatchSimulation-" + simulationCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<BatchJobResult> completion = new ExecutorCompletionService<>(executor);
+        for (BatchJob job : jobs) {
+            completion.submit(() -> runJob(job, simulations));
+        }
 
-                new File(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + name).mkdirs();
+        List<BatchJobResult> results = new ArrayList<>();
+        new File(resultFilename).getAbsoluteFile().getParentFile().mkdirs();
+        try (PrintWriter resultFile = new PrintWriter(new FileWriter(resultFilename))) {
+            resultFile.println(BatchJobResult.csvHeader());
+            for (int i = 0; i < jobs.size(); i++) {
+                BatchJobResult result;
                 try {
-                    MainConsole console = new MainConsole(true, name);
-                    console.setRobotTeamConfig(team);
-                    console.loadConfig(conf);
-                    console.load();
-
-                    Thread worker = new Thread(console, name);
-                    worker.setName(name);
-                    worker.start();
-                    threads.put(batch_counter, worker);
-                } catch (Exception e) {
-                    System.err.println("Stop Execution of this Non-GUI run because:\n" + e.toString());
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    // runJob handles all exceptions of a run, this should not happen
+                    LOGGER.log(Level.SEVERE, "Batch job threw exception", e);
+                    continue;
                 }
-                batch_counter++;
-                counter_threads++;
+                results.add(result);
+                resultFile.println(result.toCsvLine());
+                resultFile.flush();
+                LOGGER.log(Level.INFO, "{0} ({1}/{2})", new Object[]{result, results.size(), jobs.size()});
             }
-            for (int i = batch_counter - counter_threads; i < batch_counter; i++) {
-                try {
-                    threads.get(i).join();
-                    threads.remove(i);
-                    LOGGER.log(Level.INFO, "Thread {0} joined", i);
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Thread {0} threw exception {1}: {2}", new Object[]{i, e.getMessage(), e});
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write batch results to " + resultFilename, e);
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Batch execution interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            simulations.shutdownNow();
+        }
+        writeSummary(results);
+        return results;
+    }
+
+    private BatchJobResult runJob(BatchJob job, ExecutorService simulations) {
+        long startTime = System.currentTimeMillis();
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            try {
+                return runAttempt(job, attempt, startTime, simulations);
+            } catch (JobConfigException e) {
+                // retrying will not help
+                LOGGER.log(Level.SEVERE, "{0}: {1}", new Object[]{job.getName(), e.getMessage()});
+                return new BatchJobResult(job, Status.FAILED, attempt, 0, 0,
+                        System.currentTimeMillis() - startTime, 0, e.getMessage());
+            } catch (InterruptedException e) {
+                // the batch is being shut down, do not retry
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.WARNING, "{0}: cancelled", job.getName());
+                return new BatchJobResult(job, Status.FAILED, attempt, 0, 0,
+                        System.currentTimeMillis() - startTime, 0, "cancelled");
+            } catch (Exception | Error e) {
+                LOGGER.log(Level.WARNING, job.getName() + ": attempt " + attempt + " failed", e);
+                if (attempt > maxRetries) {
+                    return new BatchJobResult(job, Status.FAILED, attempt, 0, 0,
+                            System.currentTimeMillis() - startTime, 0, e.toString());
                 }
             }
-            counter_threads = 0;
+        }
+    }
+
+    private BatchJobResult runAttempt(BatchJob job, int attempt, long startTime,
+            ExecutorService simulations) throws Exception {
+        SimulatorConfig conf;
+        try {
+            conf = job.loadSimulatorConfig();
+        } catch (IllegalArgumentException e) {
+            throw new JobConfigException(e);
+        }
+        if (conf.getAgentThreads() <= 0) {
+            // jobs running side by side share the processors instead of each taking all of them
+            int parallelJobs = Math.max(1, Math.min(num_threads, jobs.size()));
+            conf.setAgentThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / parallelJobs));
+        }
+        try {
+            RobotTeamConfig team;
+            try {
+                team = job.loadRobotTeamConfig();
+            } catch (IllegalArgumentException e) {
+                throw new JobConfigException(e);
+            }
+
+            new File(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + job.getName()).mkdirs();
+            MainConsole console = new MainConsole(true, job.getName());
+            console.setRobotTeamConfig(team);
+            console.loadConfig(conf);
+            console.load();
+
+            SimulationEngine engine = console.getEngine();
+            Future<?> run = simulations.submit(() -> {
+                console.start();
+                return null;
+            });
+            try {
+                awaitRun(job, engine, run);
+            } catch (InterruptedException e) {
+                run.cancel(true);
+                throw e;
+            }
+
+            SimulationFramework simulation = engine.getSimulation();
+            Status status = engine.isFinished() ? Status.COMPLETED : Status.TIMED_OUT;
+            return new BatchJobResult(job, status, attempt, simulation.getTimeElapsed(),
+                    simulation.getPctAreaKnownTeam(), System.currentTimeMillis() - startTime,
+                    simulation.getAvgCycleTime(), null);
+        } finally {
+            // other jobs on the same map keep sharing the environment, the last one frees it
+            conf.releaseEnvironment();
+        }
+    }
+
+    /**
+     * Waits for a simulation run. At the time limit the engine is asked to stop after the current
+     * cycle; a cycle that has not ended BATCH_JOB_STOP_GRACE seconds later is interrupted and the
+     * run is given up, so a hanging cycle does not keep the worker from the next job.
+     */
+    private void awaitRun(BatchJob job, SimulationEngine engine, Future<?> run) throws Exception {
+        try {
+            if (jobTimeout > 0) {
+                run.get(jobTimeout, TimeUnit.SECONDS);
+            } else {
+                run.get();
+            }
+            return;
+        } catch (ExecutionException e) {
+            throw failureOf(e);
+        } catch (TimeoutException e) {
+            engine.stop();
+        }
+        try {
+            run.get(SimConstants.BATCH_JOB_STOP_GRACE, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw failureOf(e);
+        } catch (TimeoutException e) {
+            run.cancel(true);
+            LOGGER.log(Level.WARNING, "{0}: cycle did not end {1} s after the time limit, interrupted",
+                    new Object[]{job.getName(), SimConstants.BATCH_JOB_STOP_GRACE});
+        }
+    }
+
+    private static Exception failureOf(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (cause instanceof Exception) ? (Exception) cause : e;
+    }
+
+    /**
+     * The configuration of a job could not be loaded, unlike errors of the run itself this is not
+     * retried.
+     */
+    private static class JobConfigException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        JobConfigException(IllegalArgumentException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private void writeSummary(List<BatchJobResult> results) {
+        int[] count = new int[Status.values().length];
+        long totalWallTime = 0;
+        double sumPctExplored = 0;
+        long sumCycles = 0;
+        BatchJobResult slowest = null;
+        for (BatchJobResult result : results) {
+            count[result.getStatus().ordinal()]++;
+            totalWallTime += result.getWallTime();
+            if (result.getStatus() == Status.COMPLETED) {
+                sumPctExplored += result.getPctExplored();
+                sumCycles += result.getCycles();
+            }
+            if (slowest == null || result.getWallTime() > slowest.getWallTime()) {
+                slowest = result;
+            }
+        }
+        int completed = count[Status.COMPLETED.ordinal()];
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(summaryFilename))) {
+            out.println("jobs: " + results.size() + " of " + jobs.size());
+            for (Status status : Status.values()) {
+                out.println(status + ": " + count[status.ordinal()]);
+            }
+            out.println("worker threads: " + num_threads);
+            out.println("total job wall time (ms): " + totalWallTime);
+            if (completed > 0) {
+                out.println(String.format(Locale.US, "mean cycles (completed): %.1f", (double) sumCycles / completed));
+                out.println(String.format(Locale.US, "mean %% explored (completed): %.2f", sumPctExplored / completed));
+            }
+            if (slowest != null) {
+                out.println("slowest job: " + slowest);
+            }
+            out.println("results: " + resultFilename);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not write batch summary to " + summaryFilename, e);
         }
     }
 
@@ -158,6 +374,28 @@ public class BatchExecution {
         System.exit(0);
     }
 
+    private boolean loadSweep(String fileName) {
+        try {
+            ParameterSweep sweep = ParameterSweep.load(fileName);
+            jobs.addAll(sweep.expand());
+            if (sweep.getThreads() > 0) {
+                num_threads = sweep.getThreads();
+            }
+            if (sweep.getTimeout() >= 0) {
+                jobTimeout = sweep.getTimeout();
+            }
+            if (sweep.getRetries() >= 0) {
+                maxRetries = sweep.getRetries();
+            }
+            LOGGER.log(Level.INFO, "{0}: {1} jobs, {2} duplicates skipped",
+                    new Object[]{fileName, jobs.size(), sweep.getDuplicates()});
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Could not load sweep {0}: {1}", new Object[]{fileName, e.getMessage()});
+            return false;
+        }
+        return true;
+    }
+
     private boolean loadBatchConfig(String fileName) {
         File file = new File(fileName);
 
@@ -165,11 +403,10 @@ public class BatchExecution {
             try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
                 num_threads = Integer.parseInt(inFile.readLine());
                 while (inFile.ready()) {
-                    String[] co = {SimConstants.DEFAULT_SIMCONF_DIRECTORY + String.valueOf(inFile.readLine()),
-                        SimConstants.DEFAULT_TEAMCONF_DIRECTORY + String.valueOf(inFile.readLine()),
-                        SimConstants.DEFAULT_ENV_DIRECTORY + String.valueOf(inFile.readLine())
-                    };
-                    configFiles.add(co);
+                    jobs.add(new BatchJob("Batch " + jobs.size(),
+                            SimConstants.DEFAULT_SIMCONF_DIRECTORY + String.valueOf(inFile.readLine()),
+                            SimConstants.DEFAULT_TEAMCONF_DIRECTORY + String.valueOf(inFile.readLine()),
+                            SimConstants.DEFAULT_ENV_DIRECTORY + String.valueOf(inFile.readLine())));
                 }
 
             } catch (IOException ex) {
@@ -0,0 +1,246 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package batch;
+
+import config.RobotConfig;
+import config.RobotTeamConfig;
+import config.SimulatorConfig;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One run of a batch: a simulator configuration, a robot team and an environment, optionally with
+ * settings overridden by a parameter sweep, a fixed random seed and an own output directory.
+ *
+ * @author Christian Clausen
+ */
+public class BatchJob {
+
+    /**
+     * Prefix of overrides applied to the SimulatorConfig, e.g. "sim.TARGET_INFO_RATIO".
+     */
+    public static final String SIM_PREFIX = "sim.";
+    /**
+     * Prefix of overrides applied to the robots, e.g. "team.commRange" for every robot or
+     * "team.2.commRange" for robot 2 only.
+     */
+    public static final String TEAM_PREFIX = "team.";
+
+    private final String name;
+    private final String simConfigFile;
+    private final String teamConfigFile;
+    private final String envFile;
+    private final Map<String, Object> overrides;
+    private final Long seed;
+    private final String outputDir;
+
+    public BatchJob(String name, String simConfigFile, String teamConfigFile, String envFile) {
+        this(name, simConfigFile, teamConfigFile, envFile, null, null, null);
+    }
+
+    /**
+     * @param name name of the job, used for logging
+     * @param simConfigFile simulator configuration to start from
+     * @param teamConfigFile robot team to start from
+     * @param envFile environment
+     * @param overrides settings replacing those of the files, keys start with SIM_PREFIX or
+     * TEAM_PREFIX; may be null
+     * @param seed random seed, makes the run deterministic; null to keep the setting of the file
+     * @param outputDir directory the logs of the run are written to; null to keep the setting of
+     * the file
+     */
+    public BatchJob(String name, String simConfigFile, String teamConfigFile, String envFile,
+            Map<String, Object> overrides, Long seed, String outputDir) {
+        this.name = name;
+        this.simConfigFile = simConfigFile;
+        this.teamConfigFile = teamConfigFile;
+        this.envFile = envFile;
+        this.overrides = overrides == null ? Collections.<String, Object>emptyMap()
+                : Collections.unmodifiableMap(new TreeMap<>(overrides));
+        this.seed = seed;
+        this.outputDir = outputDir;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSimConfigFile() {
+        return simConfigFile;
+    }
+
+    public String getTeamConfigFile() {
+        return teamConfigFile;
+    }
+
+    public String getEnvFile() {
+        return envFile;
+    }
+
+    /**
+     * @return the overridden settings, sorted by key
+     */
+    public Map<String, Object> getOverrides() {
+        return overrides;
+    }
+
+    /**
+     * @return the random seed of the run, null if not set by the job
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * @return seed and overrides as "key=value" pairs separated by ';', empty if there are none
+     */
+    public String getParameterString() {
+        StringBuilder parameters = new StringBuilder();
+        if (seed != null) {
+            parameters.append("seed=").append(seed);
+        }
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            if (parameters.length() > 0) {
+                parameters.append(';');
+            }
+            parameters.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return parameters.toString();
+    }
+
+    /**
+     * Loads the simulator configuration and the environment of this job and applies seed, overrides
+     * and output directory. The configuration used is written to config.txt in the output
+     * directory.
+     *
+     * @return a new SimulatorConfig
+     * @throws IllegalArgumentException if a file could not be loaded or an override does not fit
+     */
+    public SimulatorConfig loadSimulatorConfig() {
+        SimulatorConfig conf = new SimulatorConfig();
+        if (!conf.loadSimulatorConfig(simConfigFile)) {
+            throw new IllegalArgumentException("Could not load Config-file: " + simConfigFile);
+        }
+        if (!conf.loadEnvironment(envFile)) {
+            throw new IllegalArgumentException("Could not load env: " + envFile);
+        }
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            if (entry.getKey().startsWith(SIM_PREFIX)) {
+                ConfigFields.set(conf, entry.getKey().substring(SIM_PREFIX.length()), entry.getValue());
+            }
+        }
+        if (seed != null) {
+            conf.setDeterministic(true);
+            conf.setRandomSeed(seed);
+        }
+        if (outputDir != null) {
+            File screenshots = new File(outputDir, "screenshots");
+            screenshots.mkdirs();
+            conf.setLogDataFilename(new File(outputDir, "sim.txt").getPath());
+            conf.setLogAgentsFilename(new File(outputDir, "loc.txt").getPath());
+            conf.setLogScreenshotsDirname(screenshots.getPath() + File.separator);
+            conf.setCheckpointDirname(new File(outputDir, "checkpoints").getPath() + File.separator);
+            conf.setLogAgents(true);
+            conf.setLogData(true);
+            conf.setLogScreenshots(true);
+            try (PrintWriter out = new PrintWriter(new File(outputDir, "config.txt"))) {
+                out.println(conf.toString());
+                if (!overrides.isEmpty() || seed != null) {
+                    out.println("Sweep parameters: " + getParameterString());
+                }
+            } catch (FileNotFoundException e) {
+                throw new IllegalArgumentException("Could not write to output directory " + outputDir);
+            }
+        }
+        return conf;
+    }
+
+    /**
+     * Loads the robot team of this job and applies the team overrides.
+     *
+     * @return a new RobotTeamConfig
+     * @throws IllegalArgumentException if the file could not be loaded or an override does not fit
+     */
+    public RobotTeamConfig loadRobotTeamConfig() {
+        RobotTeamConfig team = new RobotTeamConfig();
+        if (!team.loadConfig(teamConfigFile)) {
+            throw new IllegalArgumentException("Could not load Team-file: " + teamConfigFile);
+        }
+        for (Map.Entry<String, Object> entry : overrides.entrySet()) {
+            if (!entry.getKey().startsWith(TEAM_PREFIX)) {
+                continue;
+            }
+            String field = entry.getKey().substring(TEAM_PREFIX.length());
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                for (RobotConfig robot : team.getRobotTeam().values()) {
+                    ConfigFields.set(robot, field, entry.getValue());
+                }
+            } else {
+                int robotNumber = Integer.parseInt(field.substring(0, dot));
+                RobotConfig robot = team.getRobotTeam().get(robotNumber);
+                if (robot == null) {
+                    throw new IllegalArgumentException("Team-file " + teamConfigFile + " has no robot " + robotNumber);
+                }
+                ConfigFields.set(robot, field.substring(dot + 1), entry.getValue());
+            }
+        }
+        return team;
+    }
+
+    @Override
+    public String toString() {
+        String parameters = getParameterString();
+        return name + " (" + simConfigFile + ", " + teamConfigFile + ", " + envFile
+                + (parameters.isEmpty() ? "" : ", " + parameters) + ")";
+    }
+}
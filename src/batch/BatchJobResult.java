@@ -0,0 +1,145 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package batch;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one batch job, written as one line of the batch result file.
+ *
+ * @author Christian Clausen
+ */
+public class BatchJobResult {
+
+    public static enum Status {
+        COMPLETED, TIMED_OUT, FAILED
+    }
+
+    private final BatchJob job;
+    private final Status status;
+    private final int attempts;
+    private final int cycles;
+    private final double pctExplored;
+    private final long wallTime;
+    private final int avgCycleTime;
+    private final String error;
+
+    /**
+     * @param job the job that was run
+     * @param status how the last attempt ended
+     * @param attempts number of attempts, including retries
+     * @param cycles simulated cycles of the last attempt
+     * @param pctExplored percentage of the area known to the team at the end
+     * @param wallTime wall clock time of all attempts in ms
+     * @param avgCycleTime average wall clock time per cycle of the last attempt in ms
+     * @param error reason of the failure, null if the job did not fail
+     */
+    public BatchJobResult(BatchJob job, Status status, int attempts, int cycles, double pctExplored,
+            long wallTime, int avgCycleTime, String error) {
+        this.job = job;
+        this.status = status;
+        this.attempts = attempts;
+        this.cycles = cycles;
+        this.pctExplored = pctExplored;
+        this.wallTime = wallTime;
+        this.avgCycleTime = avgCycleTime;
+        this.error = error;
+    }
+
+    public BatchJob getJob() {
+        return job;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int getCycles() {
+        return cycles;
+    }
+
+    public double getPctExplored() {
+        return pctExplored;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public int getAvgCycleTime() {
+        return avgCycleTime;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public static String csvHeader() {
+        return "job,simconfig,teamconfig,environment,parameters,status,attempts,cycles,pct_explored,wall_time_ms,avg_cycle_time_ms,error";
+    }
+
+    public String toCsvLine() {
+        return String.format(Locale.US, "%s,%s,%s,%s,%s,%s,%d,%d,%.2f,%d,%d,%s",
+                csv(job.getName()), csv(job.getSimConfigFile()), csv(job.getTeamConfigFile()),
+                csv(job.getEnvFile()), csv(job.getParameterString()), status, attempts, cycles,
+                pctExplored, wallTime, avgCycleTime, csv(error == null ? "" : error));
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %s after %d attempt(s), %d cycles, %.1f%% explored, %d ms",
+                job.getName(), status, attempts, cycles, pctExplored, wallTime);
+    }
+}
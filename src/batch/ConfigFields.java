@@ -0,0 +1,140 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package batch;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+
+/**
+ * Sets fields of configuration objects by name, so a sweep can vary any setting of SimulatorConfig
+ * or RobotConfig without a setter for every one of them.
+ *
+ * @author Christian Clausen
+ */
+class ConfigFields {
+
+    private ConfigFields() {
+    }
+
+    /**
+     * Looks up a settable field of a configuration class.
+     *
+     * @param type the configuration class
+     * @param name name of the field
+     * @return the field, accessible
+     * @throws IllegalArgumentException if there is no such field or it cannot be set from a sweep
+     */
+    static Field find(Class<?> type, String name) {
+        Field field;
+        try {
+            field = type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(type.getSimpleName() + " has no field " + name);
+        }
+        if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())
+                || !isSupported(field.getType())) {
+            throw new IllegalArgumentException(type.getSimpleName() + "." + name + " cannot be set by a sweep");
+        }
+        field.setAccessible(true);
+        return field;
+    }
+
+    private static boolean isSupported(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type.isEnum();
+    }
+
+    /**
+     * Converts a value read from a sweep file to the type of a field. Numbers, booleans and strings
+     * are accepted wherever they can be converted without loss.
+     *
+     * @param field the field to be set
+     * @param value the value as read from JSON
+     * @return the value as Boolean, Integer, Long, Double, String or enum constant
+     * @throws IllegalArgumentException if the value does not fit the field
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(Field field, Object value) {
+        Class<?> type = field.getType();
+        String text = String.valueOf(value);
+        try {
+            if (type == boolean.class) {
+                if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException();
+                }
+                return Boolean.valueOf(text);
+            } else if (type == int.class) {
+                return new BigDecimal(text).intValueExact();
+            } else if (type == long.class) {
+                return new BigDecimal(text).longValueExact();
+            } else if (type == double.class) {
+                return Double.valueOf(text);
+            } else if (type == String.class) {
+                return text;
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, text);
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Value " + text + " does not fit " + field.getName()
+                + " of type " + type.getSimpleName());
+    }
+
+    /**
+     * Sets a field of a configuration object.
+     *
+     * @param target the configuration object
+     * @param name name of the field
+     * @param value value as returned by convert
+     */
+    static void set(Object target, String name, Object value) {
+        Field field = find(target.getClass(), name);
+        try {
+            field.set(target, convert(field, value));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not set " + name, e);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package batch;
+
+import config.RobotConfig;
+import config.SimConstants;
+import config.SimulatorConfig;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Expands a declarative parameter sweep into batch jobs. A sweep is a JSON object:
+ * <pre>
+ * {
+ *   "name": "ratio",                  prefix of the job names, default: name of the file
+ *   "threads": 4,                     optional settings of the batch runner
+ *   "timeout": 3600,
+ *   "retries": 1,
+ *   "outputDir": "logs/ratio",        optional, every job logs into outputDir/jobname
+ *   "base": { parameters },           applied to every job
+ *   "runs": [ { parameters }, ... ],  listed combinations, default: one empty run
+ *   "grid": { key: [ values ] or { "from": a, "to": b, "step": s }, ... }
+ * }
+ * </pre>
+ * Every run is combined with every point of the cartesian product of the grid; grid values override
+ * those of the run, run values those of the base. Parameter keys are "simConfig", "teamConfig" and
+ * "environment" (file names, relative to the default directories unless absolute), "seed",
+ * "sim.field" for any field of SimulatorConfig and "team.field" or "team.robot.field" for any field
+ * of RobotConfig. Jobs with identical files, seed and settings are only run once.
+ *
+ * @author Christian Clausen
+ */
+public class ParameterSweep {
+
+    public static final String SIM_CONFIG = "simConfig";
+    public static final String TEAM_CONFIG = "teamConfig";
+    public static final String ENVIRONMENT = "environment";
+    public static final String SEED = "seed";
+
+    private final JSONObject spec;
+    private final String name;
+    private int duplicates;
+
+    /**
+     * @param spec the sweep
+     * @param defaultName job name prefix if the sweep has no name
+     */
+    public ParameterSweep(JSONObject spec, String defaultName) {
+        this.spec = spec;
+        this.name = spec.optString("name", defaultName);
+    }
+
+    /**
+     * Reads a sweep file.
+     *
+     * @param fileName the JSON file
+     * @return the sweep
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not valid JSON
+     */
+    public static ParameterSweep load(String fileName) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+        String defaultName = new File(fileName).getName().replaceFirst("\\.json$", "");
+        try {
+            return new ParameterSweep(new JSONObject(json), defaultName);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of worker threads requested by the sweep, 0 if not set
+     */
+    public int getThreads() {
+        return spec.optInt("threads", 0);
+    }
+
+    /**
+     * @return job timeout in s requested by the sweep, -1 if not set
+     */
+    public long getTimeout() {
+        return spec.optLong("timeout", -1);
+    }
+
+    /**
+     * @return retries requested by the sweep, -1 if not set
+     */
+    public int getRetries() {
+        return spec.optInt("retries", -1);
+    }
+
+    /**
+     * @return number of jobs dropped by the last expand() because they repeated an earlier job
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Expands the sweep. All parameters are checked here, so a mistake in the sweep is reported
+     * before the first job is run.
+     *
+     * @return the jobs in the order of the runs, the last grid key varying fastest
+     * @throws IllegalArgumentException if the sweep contains an unknown key or an unfitting value
+     */
+    public List<BatchJob> expand() {
+        try {
+            Map<String, Object> base = toMap(spec.optJSONObject("base"));
+            List<Map<String, Object>> runs = new ArrayList<>();
+            JSONArray runArray = spec.optJSONArray("runs");
+            if (runArray == null) {
+                runs.add(Collections.<String, Object>emptyMap());
+            } else {
+                for (int i = 0; i < runArray.length(); i++) {
+                    runs.add(toMap(runArray.getJSONObject(i)));
+                }
+            }
+            List<Map<String, Object>> points = gridPoints(spec.optJSONObject("grid"));
+
+            List<Map<String, Object>> combinations = new ArrayList<>();
+            for (Map<String, Object> run : runs) {
+                for (Map<String, Object> point : points) {
+                    Map<String, Object> combination = new LinkedHashMap<>(base);
+                    combination.putAll(run);
+                    combination.putAll(point);
+                    combinations.add(combination);
+                }
+            }
+            return createJobs(combinations);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Sweep " + name + ": " + e.getMessage());
+        }
+    }
+
+    private List<BatchJob> createJobs(List<Map<String, Object>> combinations) {
+        String outputDir = spec.has("outputDir") ? spec.getString("outputDir") : null;
+        String format = "%s-%0" + String.valueOf(Math.max(1, combinations.size() - 1)).length() + "d";
+        List<BatchJob> jobs = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        duplicates = 0;
+        for (Map<String, Object> combination : combinations) {
+            String simConfigFile = resolve(combination, SIM_CONFIG, SimConstants.DEFAULT_SIMCONF_DIRECTORY);
+            String teamConfigFile = resolve(combination, TEAM_CONFIG, SimConstants.DEFAULT_TEAMCONF_DIRECTORY);
+            String envFile = resolve(combination, ENVIRONMENT, SimConstants.DEFAULT_ENV_DIRECTORY);
+            Long seed = null;
+            Map<String, Object> overrides = new TreeMap<>();
+            for (Map.Entry<String, Object> entry : combination.entrySet()) {
+                String key = entry.getKey();
+                if (key.equals(SIM_CONFIG) || key.equals(TEAM_CONFIG) || key.equals(ENVIRONMENT)) {
+                    continue;
+                }
+                if (key.equals(SEED)) {
+                    seed = toSeed(entry.getValue());
+                } else {
+                    overrides.put(key, convert(key, entry.getValue()));
+                }
+            }
+
+            String key = canonical(simConfigFile) + '|' + canonical(teamConfigFile) + '|'
+                    + canonical(envFile) + '|' + seed + '|' + overrides;
+            if (!keys.add(key)) {
+                duplicates++;
+                continue;
+            }
+            String jobName = String.format(format, name, jobs.size());
+            jobs.add(new BatchJob(jobName, simConfigFile, teamConfigFile, envFile, overrides, seed,
+                    outputDir == null ? null : new File(outputDir, jobName).getPath()));
+        }
+        return jobs;
+    }
+
+    /**
+     * Checks a sim. or team. parameter and converts its value to the type of the field.
+     */
+    private static Object convert(String key, Object value) {
+        Field field;
+        if (key.startsWith(BatchJob.SIM_PREFIX)) {
+            field = ConfigFields.find(SimulatorConfig.class, key.substring(BatchJob.SIM_PREFIX.length()));
+        } else if (key.startsWith(BatchJob.TEAM_PREFIX)) {
+            String fieldName = key.substring(BatchJob.TEAM_PREFIX.length());
+            int dot = fieldName.indexOf('.');
+            if (dot >= 0) {
+                try {
+                    Integer.parseInt(fieldName.substring(0, dot));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a robot number in " + key);
+                }
+                fieldName = fieldName.substring(dot + 1);
+            }
+            field = ConfigFields.find(RobotConfig.class, fieldName);
+        } else {
+            throw new IllegalArgumentException("Unknown sweep parameter " + key);
+        }
+        return ConfigFields.convert(field, value);
+    }
+
+    private static Long toSeed(Object value) {
+        try {
+            return new BigDecimal(String.valueOf(value)).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Seed " + value + " is not a whole number");
+        }
+    }
+
+    private String resolve(Map<String, Object> combination, String key, String defaultDirectory) {
+        Object value = combination.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Sweep " + name + " does not set " + key);
+        }
+        File file = new File(String.valueOf(value));
+        return file.isAbsolute() ? file.getPath() : new File(defaultDirectory, file.getPath()).getPath();
+    }
+
+    private static String canonical(String fileName) {
+        try {
+            return new File(fileName).getCanonicalPath();
+        } catch (IOException e) {
+            return new File(fileName).getAbsolutePath();
+        }
+    }
+
+    /**
+     * @return all points of the cartesian product of the grid, one empty point if there is no grid
+     */
+    private static List<Map<String, Object>> gridPoints(JSONObject grid) {
+        List<Map<String, Object>> points = new ArrayList<>();
+        points.add(Collections.<String, Object>emptyMap());
+        if (grid == null) {
+            return points;
+        }
+        for (String key : sortedKeys(grid)) {
+            List<Object> values = gridValues(key, grid.get(key));
+            List<Map<String, Object>> extended = new ArrayList<>(points.size() * values.size());
+            for (Map<String, Object> point : points) {
+                for (Object value : values) {
+                    Map<String, Object> next = new LinkedHashMap<>(point);
+                    next.put(key, value);
+                    extended.add(next);
+                }
+            }
+            points = extended;
+        }
+        return points;
+    }
+
+    private static List<Object> gridValues(String key, Object values) {
+        List<Object> list = new ArrayList<>();
+        if (values instanceof JSONArray) {
+            JSONArray array = (JSONArray) values;
+            for (int i = 0; i < array.length(); i++) {
+                list.add(array.get(i));
+            }
+        } else if (values instanceof JSONObject) {
+            JSONObject range = (JSONObject) values;
+            BigDecimal from = new BigDecimal(range.get("from").toString());
+            BigDecimal to = new BigDecimal(range.get("to").toString());
+            BigDecimal step = new BigDecimal(range.has("step") ? range.get("step").toString() : "1");
+            if (step.signum() <= 0) {
+                throw new IllegalArgumentException("Step of " + key + " must be positive");
+            }
+            for (BigDecimal value = from; value.compareTo(to) <= 0; value = value.add(step)) {
+                list.add(value);
+            }
+        } else {
+            list.add(values);
+        }
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("Grid parameter " + key + " has no values");
+        }
+        return list;
+    }
+
+    private static Map<String, Object> toMap(JSONObject object) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (object != null) {
+            for (String key : sortedKeys(object)) {
+                map.put(key, object.get(key));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * JSONObject does not keep the order of its keys, sorting them makes the job order repeatable.
+     */
+    private static List<String> sortedKeys(JSONObject object) {
+        List<String> keys = new ArrayList<>(object.keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+}
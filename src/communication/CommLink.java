@@ -45,13 +45,16 @@ package communication;
 
 import exploration.rendezvous.NearRVPoint;
 import java.awt.Point;
+import java.io.Serializable;
 
 /**
  * This class represents a communication link between two topological regions of the map.
  *
  * @author Victor
  */
-public class CommLink implements Comparable<CommLink> {
+public class CommLink implements Comparable<CommLink>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private NearRVPoint localPoint = new NearRVPoint(0, 0);
     private NearRVPoint remotePoint = new NearRVPoint(0, 0);
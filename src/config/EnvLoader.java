@@ -45,6 +45,7 @@ package config;
 
 import environment.Environment;
 import java.awt.Color;
+import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.io.BufferedReader;
@@ -68,10 +69,10 @@ public class EnvLoader {
             if (SimConstants.DEBUG_OUTPUT) {
                 System.out.println(className() + "Trying to save image based environment ... ");
             }
-            BufferedImage image = new BufferedImage(SimConstants.MAX_COLS, SimConstants.MAX_ROWS, BufferedImage.TYPE_INT_RGB);
+            BufferedImage image = new BufferedImage(env.getColumns(), env.getRows(), BufferedImage.TYPE_INT_RGB);
 
-            for (int i = 0; i < SimConstants.MAX_COLS; i++) {
-                for (int j = 0; j < SimConstants.MAX_ROWS; j++) {
+            for (int i = 0; i < env.getColumns(); i++) {
+                for (int j = 0; j < env.getRows(); j++) {
                     switch (env.statusAt(i, j)) {
                         case unexplored:
                             image.setRGB(i, j, Color.blue.getRGB());
@@ -151,6 +152,10 @@ public class EnvLoader {
     }
 
     public static Environment loadWallConfig_TextBased(String fileName) {
+        return loadWallConfig_TextBased(fileName, SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+    }
+
+    public static Environment loadWallConfig_TextBased(String fileName, int maxRows, int maxCols) {
         File file = new File(fileName);
 
         if (!file.exists()) {
@@ -169,12 +174,12 @@ public class EnvLoader {
                 System.out.println(columns + " columns, " + rows + " rows.");
             }
 
-            if (!checkDimensions(rows, columns)) {
+            if (!checkDimensions(rows, columns, maxRows, maxCols)) {
                 return null;
             }
 
-            int offsetX = (SimConstants.MAX_COLS - columns) / 2;
-            int offsetY = (SimConstants.MAX_ROWS - rows) / 2;
+            int offsetX = (maxCols - columns) / 2;
+            int offsetY = (maxRows - rows) / 2;
 
             env = new Environment(rows, columns);
             int currValue;
@@ -232,6 +237,10 @@ public class EnvLoader {
     }
 
     public static Environment loadWallConfig_ImageBased(String fileName) {
+        return loadWallConfig_ImageBased(fileName, SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+    }
+
+    public static Environment loadWallConfig_ImageBased(String fileName, int maxRows, int maxCols) {
         File file = new File(fileName);
 
         if (!file.exists()) {
@@ -251,14 +260,14 @@ public class EnvLoader {
                 System.out.println(columns + " columns, " + rows + " rows.");
             }
 
-            if (!checkDimensions(rows, columns)) {
+            if (!checkDimensions(rows, columns, maxRows, maxCols)) {
                 return null;
             }
 
-            int offsetX = (SimConstants.MAX_COLS - columns) / 2;
-            int offsetY = (SimConstants.MAX_ROWS - rows) / 2;
+            int offsetX = (maxCols - columns) / 2;
+            int offsetY = (maxRows - rows) / 2;
 
-            Environment env = new Environment(SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+            Environment env = new Environment(maxRows, maxCols);
             if (image.getColorModel().getNumColorComponents() == 1) { //GreyScale-Hack
                 Raster raster = image.getRaster();
                 for (int i = 0; i < columns; i++) {
@@ -309,29 +318,45 @@ public class EnvLoader {
     }
 
     public static Environment loadWallConfig(String fileName) {
+        return loadWallConfig(fileName, SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+    }
+
+    /**
+     * Loads the environment centred in an environment of maxRows x maxCols cells.
+     */
+    public static Environment loadWallConfig(String fileName, int maxRows, int maxCols) {
         String extension = fileName.substring(fileName.lastIndexOf('.') + 1, fileName.length());
 
         if (extension.equals("txt")) {
-            return loadWallConfig_TextBased(fileName);
+            return loadWallConfig_TextBased(fileName, maxRows, maxCols);
         } else {
-            return loadWallConfig_ImageBased(fileName);
+            return loadWallConfig_ImageBased(fileName, maxRows, maxCols);
         }
     }
 
-    private static boolean checkDimensions(int rows, int cols) {
-        if (rows > SimConstants.MAX_ROWS) {
-            JOptionPane.showMessageDialog(new JFrame(), "Input image height is too large!  Maximum height is " + SimConstants.MAX_ROWS + ".", "Input Image Error", JOptionPane.ERROR_MESSAGE);
+    private static boolean checkDimensions(int rows, int cols, int maxRows, int maxCols) {
+        if (rows > maxRows) {
+            showInputError("Input image height is too large!  Maximum height is " + maxRows + ".");
             return false;
         }
 
-        if (cols > SimConstants.MAX_COLS) {
-            JOptionPane.showMessageDialog(new JFrame(), "Input image width is too large!  Maximum width is " + SimConstants.MAX_COLS + ".", "Input Image Error", JOptionPane.ERROR_MESSAGE);
+        if (cols > maxCols) {
+            showInputError("Input image width is too large!  Maximum width is " + maxCols + ".");
             return false;
         }
 
         return true;
     }
 
+    // Headless (batch) runs have no display to show a dialog on
+    private static void showInputError(String message) {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println(className() + message);
+        } else {
+            JOptionPane.showMessageDialog(new JFrame(), message, "Input Image Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private static String className() {
         return ("[EnvLoader] ");
     }
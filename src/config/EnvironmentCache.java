@@ -0,0 +1,205 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package config;
+
+import environment.Environment;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Environments shared by all runs of this JVM. Runs on the same map get the same read-only
+ * Environment, including the data derived from it, instead of loading their own copy. Entries are
+ * keyed by file and content, so a map changed on disk is loaded again, and are dropped when the
+ * last run using them releases them. An environment is loaded by the first run that needs it,
+ * outside the lock, so runs on different maps load them at the same time.
+ *
+ * @author Christian Clausen
+ */
+public class EnvironmentCache {
+
+    // both guarded by ENTRIES
+    private static final Map<String, Entry> ENTRIES = new HashMap<>();
+    private static final Map<Environment, Entry> BY_ENVIRONMENT = new IdentityHashMap<>();
+
+    private static class Entry {
+
+        final String key;
+        final FutureTask<Environment> load;
+        Environment env;
+        int references;
+
+        Entry(String key, FutureTask<Environment> load) {
+            this.key = key;
+            this.load = load;
+        }
+    }
+
+    private EnvironmentCache() {
+    }
+
+    /**
+     * Returns the environment of the given file, loading it if no run uses it yet. Every call must
+     * be matched by a call of release() once the run is done with it.
+     *
+     * @param fileName image or text file of the environment
+     * @return the shared, read-only environment, null if the file could not be loaded
+     */
+    public static Environment acquire(String fileName) {
+        return acquire(fileName, SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+    }
+
+    /**
+     * Like acquire(String), for an environment of the given size.
+     *
+     * @param fileName image or text file of the environment
+     * @param maxRows rows of the environment
+     * @param maxCols columns of the environment
+     * @return the shared, read-only environment, null if the file could not be loaded
+     */
+    public static Environment acquire(String fileName, int maxRows, int maxCols) {
+        String key;
+        try {
+            key = key(fileName) + '#' + maxRows + 'x' + maxCols;
+        } catch (IOException e) {
+            System.err.println(className() + "Error: could not read " + fileName);
+            return null;
+        }
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+            if (entry == null) {
+                entry = new Entry(key, new FutureTask<>(() -> load(fileName, maxRows, maxCols)));
+                ENTRIES.put(key, entry);
+            }
+            entry.references++;
+        }
+        // the first caller loads, the others wait for it
+        entry.load.run();
+        Environment env = null;
+        try {
+            env = entry.load.get();
+        } catch (ExecutionException e) {
+            System.err.println(className() + "Error: could not load " + fileName + ": " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ENTRIES) {
+            if (env == null) {
+                unreference(entry);
+            } else if (entry.env == null) {
+                entry.env = env;
+                BY_ENVIRONMENT.put(env, entry);
+            }
+        }
+        return env;
+    }
+
+    /**
+     * Gives back an environment returned by acquire(). Environments not from the cache are ignored.
+     *
+     * @param env the environment
+     */
+    public static void release(Environment env) {
+        synchronized (ENTRIES) {
+            Entry entry = BY_ENVIRONMENT.get(env);
+            if (entry != null) {
+                unreference(entry);
+            }
+        }
+    }
+
+    /**
+     * @return number of environments currently shared
+     */
+    public static int size() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    private static Environment load(String fileName, int maxRows, int maxCols) {
+        Environment env = EnvLoader.loadWallConfig(fileName, maxRows, maxCols);
+        if (env != null) {
+            env.setReadOnly();
+        }
+        return env;
+    }
+
+    // caller holds the ENTRIES lock
+    private static void unreference(Entry entry) {
+        entry.references--;
+        if (entry.references <= 0) {
+            ENTRIES.remove(entry.key, entry);
+            if (entry.env != null) {
+                BY_ENVIRONMENT.remove(entry.env);
+            }
+        }
+    }
+
+    private static String key(String fileName) throws IOException {
+        File file = new File(fileName);
+        byte[] content = Files.readAllBytes(file.toPath());
+        StringBuilder key = new StringBuilder(file.getCanonicalPath()).append('#');
+        try {
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                key.append(String.format("%02x", b));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return key.toString();
+    }
+
+    private static String className() {
+        return ("[EnvironmentCache] ");
+    }
+}
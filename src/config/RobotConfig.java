@@ -43,11 +43,15 @@
  */
 package config;
 
+import java.io.Serializable;
+
 /**
  *
  * @author Julian de Hoog
  */
-public class RobotConfig {
+public class RobotConfig implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     // start x, y and heading count as a single field, comma delimited.
     public static int NUMROBOTCONFIGFIELDS = 13;
@@ -50,13 +50,16 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.util.HashMap;
 
 /**
  *
  * @author Julian de Hoog
  */
-public class RobotTeamConfig {
+public class RobotTeamConfig implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
 // <editor-fold defaultstate="collapsed" desc="Variables and Constructor">
     private int numRobots;
@@ -61,25 +61,30 @@ public class SimConstants {
     public static final boolean DEBUG_OUTPUT = false;
 
     /**
-     * Max number of rows in environment
+     * Default for the max number of rows in environment, see SimulatorConfig.getMaxRows()
      */
     public static final int MAX_ROWS = 600;
 
     /**
-     * Max number of columns in enviroment.
+     * Default for the max number of columns in enviroment, see SimulatorConfig.getMaxCols()
      */
     public static final int MAX_COLS = 800;
 
     /**
-     * Random seed for random walk. (int) System.currentTimeMillis(); for random any constant
-     * int-value for testing
+     * Default seed of a deterministic run, see SimulatorConfig.
      */
     public static final int RANDOM_SEED = 12345;
 
     /**
-     * Max time to search for a path, in ms.
+     * Max number of nodes A* expands before giving up on a path. Counted in expansions rather than
+     * ms so that the result does not depend on the speed of the machine.
      */
-    public static final int MAX_PATH_SEARCH_TIME = 500;
+    public static final int MAX_PATH_SEARCH_EXPANSIONS = 3000;
+
+    /**
+     * Max number of nodes A* expands when searching an exact path (step size 1).
+     */
+    public static final int MAX_EXACT_PATH_SEARCH_EXPANSIONS = 7000;
 
     /**
      * Size of relay in image. Default 4
@@ -144,6 +149,18 @@ public class SimConstants {
      */
     public static final int WALL_DISTANCE = 3;
 
+    /**
+     * Largest wall distance the agents' maps keep up to date, checks for larger distances scan the
+     * map instead.
+     */
+    public static final int MAX_TRACKED_WALL_DISTANCE = 8;
+
+    /**
+     * Most parts the rays of one sensor scan are cut into, to share the scans of a cycle between
+     * the worker threads.
+     */
+    public static final int MAX_RAY_PARTS = 8;
+
     /**
      * How many neighbours are added to the queue for AStar search when planning paths.
      *
@@ -293,10 +310,10 @@ public class SimConstants {
     public static final double MIN_RV_THROUGH_WALL_ACCEPT_RATIO = 0.8;
 
     /**
-     * Maximum time we're allowed to search for distance by skeleton, in ms.
-     *
+     * Maximum number of skeleton cells we're allowed to visit when searching for distance by
+     * skeleton.
      */
-    public static final long MAX_TIME_DISTANCE_BY_SKELETON = 100;
+    public static final int MAX_VISITS_DISTANCE_BY_SKELETON = 5000;
 
     /**
      * Time an agent needs to drop a ComStation (including the current one).
@@ -318,8 +335,30 @@ public class SimConstants {
             = Paths.get(System.getProperty("user.dir"), "simconfig").toString() + File.separator;
     public static final String DEFAULT_IMAGE_LOG_DIRECTORY
             = Paths.get(System.getProperty("user.dir"), "logs", "images").toString() + File.separator;
+    /**
+     * Where checkpoints of a run are written unless the SimulatorConfig names a directory.
+     */
+    public static final String DEFAULT_CHECKPOINT_DIRECTORY
+            = Paths.get(System.getProperty("user.dir"), "logs", "checkpoints").toString() + File.separator;
     public static int MAXIMUM_TIME = 3000;
+    /**
+     * Wall clock time after which a batch job is stopped, in s. 0 for no limit.
+     */
+    public static long BATCH_JOB_TIMEOUT = 6 * 60 * 60;
+    /**
+     * How long a batch job at its time limit may take to end the current cycle before it is
+     * interrupted and given up, in s.
+     */
+    public static long BATCH_JOB_STOP_GRACE = 60;
+    /**
+     * How often a batch job that failed with an exception is run again.
+     */
+    public static int BATCH_JOB_RETRIES = 1;
     public static double HANDOVER_RANGE = 8;
+    /**
+     * If true, the wall clock time of every phase of a simulation cycle is recorded and reported at
+     * the end of a run, see simulator.CycleProfiler.
+     */
     public static boolean PROFILING = false;
     /**
      * Minimum distance from one KeyPoint to the next. Default: 20
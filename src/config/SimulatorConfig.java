@@ -50,13 +50,18 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 
 /**
  * Describes the model of the simulator configuration.
  *
  * @author julh
  */
-public class SimulatorConfig {
+public class SimulatorConfig implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private boolean logAgents;
     private String logAgentsFilename;
@@ -76,6 +81,7 @@ public class SimulatorConfig {
     private commtype commModel;
     private int simRate;
     private Environment env;
+    private transient boolean sharedEnv; //env is from the EnvironmentCache and has not been released yet
 
     public static enum exptype {
         BatchRun, RunFromLog, LeaderFollower, FrontierExploration,
@@ -122,6 +128,15 @@ public class SimulatorConfig {
     private boolean relayExplore; //Should relay also explore if it gets a chance in RBE
     private boolean tryToGetToExplorerRV;
     private boolean useSingleMeetingTime;
+    private int agentThreads; //number of worker threads stepping the agents each cycle, 0 means one per processor
+    private boolean deterministic; //if true, all randomness of a run is derived from randomSeed, so runs can be repeated
+    private long randomSeed;
+    private boolean reuseIdleResults; //if true, sensor scans and link detection of agents standing still are reused instead of recomputed
+    private int checkpointInterval; //cycles between two checkpoints of the simulation, 0 for none
+    private String checkpointDirname;
+    private String resumeFilename; //checkpoint the run continues from, null to start from scratch
+    private int maxRows; //environments are this high, smaller maps are centred in them
+    private int maxCols;
 
     public SimulatorConfig() {
         boolean oldEnvVariableConfigFound = loadOldSimulatorConfig();
@@ -155,11 +170,20 @@ public class SimulatorConfig {
             comStationDropChance = 0;
             useComStations = false;
             comStationTakeChance = 0;
+            agentThreads = 0;
+            deterministic = false;
+            randomSeed = SimConstants.RANDOM_SEED;
+            reuseIdleResults = true;
+            checkpointInterval = 0;
+            checkpointDirname = SimConstants.DEFAULT_CHECKPOINT_DIRECTORY;
+            resumeFilename = null;
+            maxRows = SimConstants.MAX_ROWS;
+            maxCols = SimConstants.MAX_COLS;
         }
 
         boolean oldWallConfigFound = loadOldWallConfig();
         if (!oldWallConfigFound) {
-            env = new Environment(SimConstants.MAX_ROWS, SimConstants.MAX_COLS);
+            env = new Environment(maxRows, maxCols);
         }
     }
 
@@ -431,6 +455,99 @@ public class SimulatorConfig {
     public boolean getExploreReplan() {
         return exploreReplan;
     }
+
+    public int getAgentThreads() {
+        return agentThreads;
+    }
+
+    public void setAgentThreads(int threads) {
+        agentThreads = threads;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long seed) {
+        randomSeed = seed;
+    }
+
+    public boolean isReuseIdleResults() {
+        return reuseIdleResults;
+    }
+
+    public void setReuseIdleResults(boolean reuseIdleResults) {
+        this.reuseIdleResults = reuseIdleResults;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(int cycles) {
+        checkpointInterval = cycles;
+    }
+
+    public String getCheckpointDirname() {
+        return checkpointDirname;
+    }
+
+    public void setCheckpointDirname(String f) {
+        checkpointDirname = f;
+    }
+
+    public String getResumeFilename() {
+        return resumeFilename;
+    }
+
+    public void setResumeFilename(String f) {
+        resumeFilename = f;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int rows) {
+        maxRows = rows;
+    }
+
+    public int getMaxCols() {
+        return maxCols;
+    }
+
+    public void setMaxCols(int cols) {
+        maxCols = cols;
+    }
+
+    /**
+     * Takes over all settings of the given configuration except the environment. A run resumed from
+     * a checkpoint keeps the configuration object its agents were saved with, this applies the
+     * settings of the new run to it.
+     *
+     * @param other configuration to copy the settings from
+     */
+    public void copySettingsFrom(SimulatorConfig other) {
+        for (Field field : SimulatorConfig.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                    || field.getName().equals("env")) {
+                continue;
+            }
+            try {
+                field.set(this, field.get(other));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not copy setting " + field.getName(), e);
+            }
+        }
+    }
 // </editor-fold>
 
     private boolean loadOldSimulatorConfig() {
@@ -550,6 +667,58 @@ public class SimulatorConfig {
                 } catch (IOException | NumberFormatException e) {
                     PERIODIC_RETURN_PERIOD = 100;
                 }
+                try {
+                    agentThreads = Integer.parseInt(inFile.readLine());
+                } catch (IOException | NumberFormatException e) {
+                    agentThreads = 0;
+                }
+                try {
+                    deterministic = Boolean.parseBoolean(inFile.readLine());
+                } catch (Exception e) {
+                    deterministic = false;
+                }
+                try {
+                    randomSeed = Long.parseLong(inFile.readLine());
+                } catch (IOException | NumberFormatException e) {
+                    randomSeed = SimConstants.RANDOM_SEED;
+                }
+                try {
+                    String line = inFile.readLine();
+                    reuseIdleResults = line == null || Boolean.parseBoolean(line);
+                } catch (IOException e) {
+                    reuseIdleResults = true;
+                }
+                try {
+                    checkpointInterval = Integer.parseInt(inFile.readLine());
+                } catch (IOException | NumberFormatException e) {
+                    checkpointInterval = 0;
+                }
+                try {
+                    checkpointDirname = inFile.readLine();
+                } catch (IOException e) {
+                    checkpointDirname = null;
+                }
+                if (checkpointDirname == null || checkpointDirname.isEmpty()) {
+                    checkpointDirname = SimConstants.DEFAULT_CHECKPOINT_DIRECTORY;
+                }
+                try {
+                    resumeFilename = inFile.readLine();
+                } catch (IOException e) {
+                    resumeFilename = null;
+                }
+                if (resumeFilename != null && (resumeFilename.isEmpty() || resumeFilename.equals("null"))) {
+                    resumeFilename = null;
+                }
+                try {
+                    maxRows = Integer.parseInt(inFile.readLine());
+                } catch (IOException | NumberFormatException e) {
+                    maxRows = SimConstants.MAX_ROWS;
+                }
+                try {
+                    maxCols = Integer.parseInt(inFile.readLine());
+                } catch (IOException | NumberFormatException e) {
+                    maxCols = SimConstants.MAX_COLS;
+                }
 
             } catch (IOException e) {
                 System.err.println(this.toString() + "Error: could not read data from " + fileName);
@@ -571,12 +740,32 @@ public class SimulatorConfig {
         }
     }
 
+    /**
+     * Loads the environment, or shares it with the other runs on the same map, see
+     * EnvironmentCache. The environment is read-only.
+     *
+     * @param fileName image or text file of the environment
+     * @return true if the environment could be loaded
+     */
     public boolean loadEnvironment(String fileName) {
-        env = EnvLoader.loadWallConfig(fileName);
+        releaseEnvironment();
+        env = EnvironmentCache.acquire(fileName, maxRows, maxCols);
+        sharedEnv = env != null;
 
         return env != null;
     }
 
+    /**
+     * Tells the EnvironmentCache that this configuration does not use its environment any more. The
+     * environment stays usable, it is just no longer kept for other runs on its account.
+     */
+    public void releaseEnvironment() {
+        if (sharedEnv) {
+            EnvironmentCache.release(env);
+            sharedEnv = false;
+        }
+    }
+
     public boolean saveSimulatorConfig() {
         return (this.saveSimulatorConfig(System.getProperty("user.dir") + "/config/lastSimulatorConfig.txt"));
     }
@@ -617,6 +806,15 @@ public class SimulatorConfig {
             outFile.println(comStationDropChance);
             outFile.println(comStationTakeChance);
             outFile.println(PERIODIC_RETURN_PERIOD);
+            outFile.println(agentThreads);
+            outFile.println(deterministic);
+            outFile.println(randomSeed);
+            outFile.println(reuseIdleResults);
+            outFile.println(checkpointInterval);
+            outFile.println(checkpointDirname);
+            outFile.println(resumeFilename);
+            outFile.println(maxRows);
+            outFile.println(maxCols);
 
         } catch (IOException e) {
             System.err.println(this.toString() + "Error writing to file " + fileName);
@@ -660,7 +858,16 @@ public class SimulatorConfig {
                 + "\n exploreReplan: " + exploreReplan
                 + "\n ComStationDropChance: " + comStationDropChance
                 + "\n ComStationTakeChance: " + comStationTakeChance
-                + "\n PeriodicReturnPeriode: " + PERIODIC_RETURN_PERIOD);
+                + "\n PeriodicReturnPeriode: " + PERIODIC_RETURN_PERIOD
+                + "\n agentThreads: " + agentThreads
+                + "\n deterministic: " + deterministic
+                + "\n randomSeed: " + randomSeed
+                + "\n reuseIdleResults: " + reuseIdleResults
+                + "\n checkpointInterval: " + checkpointInterval
+                + "\n checkpointDirname: " + checkpointDirname
+                + "\n resumeFilename: " + resumeFilename
+                + "\n maxRows: " + maxRows
+                + "\n maxCols: " + maxCols);
     }
 
 }
@@ -0,0 +1,124 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+/**
+ * A set of cells of a grid, stored as one bit per cell in the layout of the OccupancyGrid
+ * bitplanes: every row starts at a new word, cell (x, y) is bit x % 64 of word
+ * y * wordsPerRow + x / 64.
+ *
+ * @author Christian Clausen
+ */
+public class CellMask {
+
+    private final long[] words;
+    private final int wordsPerRow;
+    public final int width;
+    public final int height;
+
+    CellMask(long[] words, int width, int height) {
+        this.words = words;
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+    }
+
+    /**
+     * @return true if the cell is in the set, false for cells outside the grid
+     */
+    public boolean get(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        return ((words[y * wordsPerRow + (x >>> 6)] >>> (x & 63)) & 1L) != 0;
+    }
+
+    /**
+     * Finds the next cell of the set in row-major order, cells are numbered y * width + x.
+     *
+     * @param fromCell first cell to look at
+     * @return number of the next cell in the set at or after fromCell, -1 if there is none
+     */
+    public int nextCell(int fromCell) {
+        if (fromCell < 0) {
+            fromCell = 0;
+        }
+        int y = fromCell / width;
+        if (y >= height) {
+            return -1;
+        }
+        int w = y * wordsPerRow + ((fromCell % width) >>> 6);
+        long bits = words[w] & (-1L << ((fromCell % width) & 63));
+        while (true) {
+            if (bits != 0) {
+                int row = w / wordsPerRow;
+                return row * width + ((w % wordsPerRow) << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            bits = words[w];
+        }
+    }
+
+    /**
+     * @return number of cells in the set
+     */
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -180,7 +180,7 @@ public class ContourTracer {
         return direction.values()[searchIndex];
     }
 
-    private static Point findNextPixelOnContour(OccupancyGrid occGrid, Point pt, direction dir) {
+    private static Point findNextPixelOnContour(OccupancyGrid occGrid, CellMask frontierCells, Point pt, direction dir) {
         direction currDir;
         Point currPoint;
 
@@ -188,8 +188,7 @@ public class ContourTracer {
             currDir = direction.values()[(dir.ordinal() + i) % 8];
             currPoint = dir2Point(pt, currDir);
 
-            if (occGrid.locationExists(currPoint.x, currPoint.y)
-                    && occGrid.frontierCellAt(currPoint.x, currPoint.y)) {
+            if (frontierCells.get(currPoint.x, currPoint.y)) {
                 int dx = currPoint.x - pt.x;
                 int dy = currPoint.y - pt.y;
                 boolean diagonal = (dx != 0) && (dy != 0);
@@ -207,8 +206,9 @@ public class ContourTracer {
         return null;
     }
 
-    private static LinkedList<Point> traceContour(OccupancyGrid occGrid, int startX, int startY, direction startDir) {
-        if (!occGrid.frontierCellAt(startX, startY)) {
+    private static LinkedList<Point> traceContour(OccupancyGrid occGrid, CellMask frontierCells, int startX, int startY,
+            direction startDir) {
+        if (!frontierCells.get(startX, startY)) {
             System.err.println("This cannot happen!");
         }
 
@@ -218,7 +218,7 @@ public class ContourTracer {
 
         Point firstPixel = new Point(startX, startY);
         pts.add(firstPixel);
-        Point secondPixel = findNextPixelOnContour(occGrid, firstPixel, startDir);
+        Point secondPixel = findNextPixelOnContour(occGrid, frontierCells, firstPixel, startDir);
 
         //if there is no further pixel, this is a one-pixel component and we're done
         if (secondPixel == null) {
@@ -233,7 +233,7 @@ public class ContourTracer {
         currPixel = new Point(secondPixel.x, secondPixel.y);
         //System.out.println("CP: " + currPixel.x + " " + currPixel.y);
 
-        nextPixel = findNextPixelOnContour(occGrid, currPixel, searchStart);
+        nextPixel = findNextPixelOnContour(occGrid, frontierCells, currPixel, searchStart);
         //System.out.println("NP: " + nextPixel.x + " " + nextPixel.y);
 
         // In loop until all pixels on contour have been found
@@ -246,7 +246,7 @@ public class ContourTracer {
             //System.out.println("SS: " + searchStart.toString());
             currPixel = nextPixel;
             //System.out.println("CP: " + currPixel.x + " " + currPixel.y);
-            nextPixel = findNextPixelOnContour(occGrid, currPixel, searchStart);
+            nextPixel = findNextPixelOnContour(occGrid, frontierCells, currPixel, searchStart);
             //System.out.println("NP: " + nextPixel.x + " " + nextPixel.y);
         }
         return pts;
@@ -284,6 +284,15 @@ public class ContourTracer {
     }
 
     public static LinkedList<LinkedList<Point>> findAllContours(OccupancyGrid occGrid) {
+        return findAllContours(occGrid, occGrid.getFrontierMask());
+    }
+
+    /**
+     * @param occGrid the grid
+     * @param frontierCells the frontier cells of the grid, see OccupancyGrid.getFrontierMask()
+     * @return the contours of the frontier cells
+     */
+    public static LinkedList<LinkedList<Point>> findAllContours(OccupancyGrid occGrid, CellMask frontierCells) {
         LinkedList<LinkedList<Point>> contourList = new LinkedList<>();
         LinkedList<Point> currContour;
 
@@ -295,38 +304,37 @@ public class ContourTracer {
             }
         }
 
-        for (int j = 0; j < occGrid.height; j++) {
-            for (int i = 0; i < occGrid.width; i++) {
-                if (occGrid.frontierCellAt(i, j) && labels[i][j] == 0) {
-                    //&& (!occGrid.locationExists(i, j - 1) || (!occGrid.frontierCellAt(i - 1, j - 1) && !occGrid.frontierCellAt(i, j - 1) && !occGrid.frontierCellAt(i + 1, j - 1)))
+        for (int cell = frontierCells.nextCell(0); cell >= 0; cell = frontierCells.nextCell(cell + 1)) {
+            int i = cell % occGrid.width;
+            int j = cell / occGrid.width;
+            if (labels[i][j] == 0) {
+                //&& (!occGrid.locationExists(i, j - 1) || (!occGrid.frontierCellAt(i - 1, j - 1) && !occGrid.frontierCellAt(i, j - 1) && !occGrid.frontierCellAt(i + 1, j - 1)))
 
-                    //saveLabelsToPNG("contours", labels);
-                    // We must have found external contour of new component
-                    currContour = traceContour(occGrid, i, j, direction.NE);
+                //saveLabelsToPNG("contours", labels);
+                // We must have found external contour of new component
+                currContour = traceContour(occGrid, frontierCells, i, j, direction.NE);
 
-                    if (currContour.size() <= 1) {
-                        continue;
-                    }
-                    boolean interesting = false;
-                    for (Point p : currContour) {
-                        if (labels[p.x][p.y] == 1) {
-                            interesting = false;
-                            break;
-                        }
-                        if (occGrid.frontierBorderCellAt(p.x, p.y)) {
-                            interesting = true;
-                            // this contour should be added
-                            //labels = updateLabels(labels, currContour);
-                            //contourList.add(currContour);
-                            //break;
-                        }
+                if (currContour.size() <= 1) {
+                    continue;
+                }
+                boolean interesting = false;
+                for (Point p : currContour) {
+                    if (labels[p.x][p.y] == 1) {
+                        interesting = false;
+                        break;
                     }
-                    if (interesting) {
-                        labels = updateLabels(labels, currContour);
-                        contourList.add(currContour);
+                    if (frontierCells.get(p.x, p.y)) { // every frontier cell borders unknown space
+                        interesting = true;
+                        // this contour should be added
+                        //labels = updateLabels(labels, currContour);
+                        //contourList.add(currContour);
+                        //break;
                     }
                 }
-
+                if (interesting) {
+                    labels = updateLabels(labels, currContour);
+                    contourList.add(currContour);
+                }
             }
         }
         //saveLabelsToPNG("contours", labels);
@@ -0,0 +1,209 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.io.Serializable;
+
+/**
+ * Squared euclidean distance from every cell of a grid to the nearest obstacle cell, computed
+ * exactly with the two pass lower envelope algorithm of Felzenszwalb and Huttenlocher. With it,
+ * "is there an obstacle within distance d" is one lookup.
+ *
+ * A field can be limited to a maximum distance, larger distances are not kept. A change of an
+ * obstacle then only affects the cells up to that distance away, so update() can bring the field
+ * up to date by recomputing just the area around the changes.
+ *
+ * @author Christian Clausen
+ */
+public class DistanceField implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Tells which cells are obstacles.
+     */
+    public interface Obstacles {
+
+        boolean obstacleAt(int x, int y);
+    }
+
+    private static final double INF = 1e20;
+
+    private final int width;
+    private final int height;
+    private final int maxDistance;
+    private final int[] squaredDistances; // y * width + x, Integer.MAX_VALUE if there is no obstacle close enough
+
+    /**
+     * Computes the distances for the obstacles of a width x height grid.
+     */
+    public DistanceField(int width, int height, Obstacles obstacles) {
+        this(width, height, Integer.MAX_VALUE, obstacles);
+    }
+
+    /**
+     * Computes the distances up to maxDistance for the obstacles of a width x height grid.
+     */
+    public DistanceField(int width, int height, int maxDistance, Obstacles obstacles) {
+        this.width = width;
+        this.height = height;
+        this.maxDistance = maxDistance;
+        this.squaredDistances = new int[width * height];
+        compute(0, 0, width - 1, height - 1, 0, 0, width - 1, height - 1, obstacles);
+    }
+
+    /**
+     * Recomputes the cells that can have changed after obstacles in the rectangle changed. Only
+     * for fields with a maximum distance.
+     *
+     * @param minX left column of the changed rectangle
+     * @param minY top row
+     * @param maxX right column
+     * @param maxY bottom row
+     * @param obstacles the obstacles as they are now
+     */
+    public void update(int minX, int minY, int maxX, int maxY, Obstacles obstacles) {
+        // cells further away keep their distance, obstacles further away from these do not matter
+        int outMinX = Math.max(0, minX - maxDistance);
+        int outMinY = Math.max(0, minY - maxDistance);
+        int outMaxX = Math.min(width - 1, maxX + maxDistance);
+        int outMaxY = Math.min(height - 1, maxY + maxDistance);
+        compute(Math.max(0, outMinX - maxDistance), Math.max(0, outMinY - maxDistance),
+                Math.min(width - 1, outMaxX + maxDistance), Math.min(height - 1, outMaxY + maxDistance),
+                outMinX, outMinY, outMaxX, outMaxY, obstacles);
+    }
+
+    /**
+     * Computes the cells of the output rectangle from the obstacles in the input rectangle, which
+     * contains it.
+     */
+    private void compute(int inMinX, int inMinY, int inMaxX, int inMaxY,
+            int outMinX, int outMinY, int outMaxX, int outMaxY, Obstacles obstacles) {
+        int inWidth = inMaxX - inMinX + 1;
+        int inHeight = inMaxY - inMinY + 1;
+        int n = Math.max(inWidth, inHeight);
+        double[] f = new double[n];
+        double[] d = new double[n];
+        int[] v = new int[n];
+        double[] z = new double[n + 1];
+        double[] columns = new double[inWidth * (outMaxY - outMinY + 1)];
+        long maxSquared = (long) maxDistance * maxDistance;
+
+        // distances within each column
+        for (int x = inMinX; x <= inMaxX; x++) {
+            for (int y = inMinY; y <= inMaxY; y++) {
+                f[y - inMinY] = obstacles.obstacleAt(x, y) ? 0 : INF;
+            }
+            transform(f, inHeight, d, v, z);
+            for (int y = outMinY; y <= outMaxY; y++) {
+                columns[(y - outMinY) * inWidth + x - inMinX] = d[y - inMinY];
+            }
+        }
+        // then along the rows
+        for (int y = outMinY; y <= outMaxY; y++) {
+            System.arraycopy(columns, (y - outMinY) * inWidth, f, 0, inWidth);
+            transform(f, inWidth, d, v, z);
+            for (int x = outMinX; x <= outMaxX; x++) {
+                double distance = d[x - inMinX];
+                squaredDistances[y * width + x] = distance >= INF || distance > maxSquared
+                        ? Integer.MAX_VALUE : (int) distance;
+            }
+        }
+    }
+
+    /**
+     * One dimensional squared distance transform of f[0..n-1] into d, v and z are work arrays.
+     */
+    private static void transform(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INF;
+        z[1] = INF;
+        for (int q = 1; q < n; q++) {
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INF;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            d[q] = (double) (q - v[k]) * (q - v[k]) + f[v[k]];
+        }
+    }
+
+    private static double intersection(double[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * q - 2.0 * p);
+    }
+
+    /**
+     * @return squared distance from the cell to the nearest obstacle, Integer.MAX_VALUE if there
+     * is none within the maximum distance
+     */
+    public int squaredDistance(int x, int y) {
+        return squaredDistances[y * width + x];
+    }
+
+    /**
+     * @return distances up to this one are kept
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * @return true if there is an obstacle at most distance away from the cell, which has to be in
+     * the grid; distance must not be larger than the maximum distance
+     */
+    public boolean obstacleWithinDistance(int x, int y, int distance) {
+        return distance >= 0 && squaredDistances[y * width + x] <= (long) distance * distance;
+    }
+}
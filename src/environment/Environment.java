@@ -44,6 +44,11 @@
 package environment;
 
 import java.awt.Point;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  *The Environment is the true map the simulation uses as ground truth. Agents never know this data,
@@ -51,7 +56,9 @@ import java.awt.Point;
  *
  * @author julh
  */
-public class Environment implements IntGrid{
+public class Environment implements IntGrid, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private int rows;           // The environment's size
     private int columns;
@@ -64,7 +71,20 @@ public class Environment implements IntGrid{
         obstacle, // 4 not traversable but might change
         barrier // 5 not traversable
     }
-    private Status status[][];
+    private static final Status[] STATUS_VALUES = Status.values();
+    // obstacleAt(i, j, ability) is true for every cell if ability is below 0, for none from this on
+    private static final int NUM_ABILITIES = STATUS_VALUES.length - 1;
+
+    private transient byte[] cells; // status ordinal of cell (x, y) at y * columns + x, written by writeObject
+    /**
+     * For every ability, the cells that are obstacles to it (status ordinal above the ability), bit
+     * y * columns + x. Kept up to date with the cells.
+     */
+    private transient long[][] blockedCells;
+    private transient Status[][] statusView; // for getFullStatus(), null if cells changed since
+    private boolean readOnly;   // shared between runs, see config.EnvironmentCache
+    private int totalFreeSpace; // only kept up to date once read-only
+    private transient DistanceField obstacleDistances; // null if obstacles changed since it was computed
 
     /**
      * Simple constructor for setup stage -- rows and columns only
@@ -88,23 +108,76 @@ public class Environment implements IntGrid{
     }
 
     public void setStatus(int i, int j, Status newStat) {
-        status[i][j] = newStat;
+        if (readOnly) {
+            throw new IllegalStateException("Environment is shared between runs and cannot be changed");
+        }
+        if (obstacleDistances != null && (newStat.ordinal() > Status.obstacle.ordinal()) != obstacleAt(i, j)) {
+            obstacleDistances = null;
+        }
+        int cell = index(i, j);
+        cells[cell] = (byte) newStat.ordinal();
+        for (int ability = 0; ability < NUM_ABILITIES; ability++) {
+            if (newStat.ordinal() > ability) {
+                blockedCells[ability][cell >>> 6] |= 1L << cell;
+            } else {
+                blockedCells[ability][cell >>> 6] &= ~(1L << cell);
+            }
+        }
+        statusView = null;
+    }
+
+    /**
+     * Makes the environment immutable, so it can be shared between runs. Data derived from the
+     * cells, like the total free space, is calculated once here.
+     */
+    public void setReadOnly() {
+        totalFreeSpace = countFreeSpace();
+        // computed now, as the runs sharing the environment use it from several threads
+        obstacleDistances = new DistanceField(columns, rows, this::obstacleAt);
+        readOnly = true;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
     }
 
     public Status statusAt(int i, int j) {
-        return status[i][j];
+        return STATUS_VALUES[cells[index(i, j)]];
     }
 
     public boolean obstacleAt(int i, int j) {
-        return (statusAt(i, j).ordinal() > Status.obstacle.ordinal());
+        return cells[index(i, j)] > Status.obstacle.ordinal();
     }
 
     public boolean obstacleAt(int i, int j, int ability) {
-        return (statusAt(i, j).ordinal() > ability);
+        return cells[index(i, j)] > ability;
     }
 
+    /**
+     * @return the cells as a [column][row] matrix, made when first asked for after a change;
+     * callers must not change them
+     */
     public Status[][] getFullStatus() {
-        return status;
+        Status[][] view = statusView;
+        if (view == null) {
+            view = new Status[columns][rows];
+            for (int i = 0; i < columns; i++) {
+                for (int j = 0; j < rows; j++) {
+                    view[i][j] = STATUS_VALUES[cells[j * columns + i]];
+                }
+            }
+            statusView = view;
+        }
+        return view;
+    }
+
+    /**
+     * @param ability 0 to 4, see obstacleAt(int, int, int)
+     * @return for every cell, bit y * columns + x, whether it is an obstacle to the ability; not a
+     * copy, callers must not change it
+     */
+    public long[] getBlockedCells(int ability) {
+        return blockedCells[ability];
     }
 
     /**
@@ -116,7 +189,7 @@ public class Environment implements IntGrid{
         int[][] intGrid= new int[columns][rows];
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                if(status[i][j] == Status.unexplored){
+                if(statusAt(i, j) == Status.unexplored){
                     intGrid[j][i] = 1;
                 } else {
                     intGrid[j][i] = 0;
@@ -130,14 +203,31 @@ public class Environment implements IntGrid{
      * Initializes the environment. Sets every cell to explored
      */
     private void initCells() {
-        status = new Status[columns][rows];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                status[j][i] = Status.explored;
+        cells = new byte[rows * columns];
+        Arrays.fill(cells, (byte) Status.explored.ordinal());
+        findBlockedCells();
+    }
+
+    private void findBlockedCells() {
+        blockedCells = new long[NUM_ABILITIES][(rows * columns + 63) >>> 6];
+        for (int cell = 0; cell < cells.length; cell++) {
+            for (int ability = 0; ability < cells[cell]; ability++) {
+                blockedCells[ability][cell >>> 6] |= 1L << cell;
             }
         }
     }
 
+    /**
+     * @return index of cell (i, j) in cells; throws like the old [column][row] array did for
+     * coordinates outside the environment
+     */
+    private int index(int i, int j) {
+        if (i < 0 || i >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Column " + i + " outside the environment");
+        }
+        return j * columns + i;
+    }
+
     /**
      * Checks if given Coordinates are inside the environment
      *
@@ -149,6 +239,34 @@ public class Environment implements IntGrid{
         return (x < columns && x >= 0 && y < rows && y >= 0);
     }
 
+    /**
+     * Writes the cells as one byte per cell instead of an enum reference per cell, which keeps
+     * checkpoints small.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        byte[] column = new byte[rows];
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                column[j] = cells[j * columns + i];
+            }
+            out.write(column);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        byte[] column = new byte[rows];
+        cells = new byte[rows * columns];
+        for (int i = 0; i < columns; i++) {
+            in.readFully(column);
+            for (int j = 0; j < rows; j++) {
+                cells[j * columns + i] = column[j];
+            }
+        }
+        findBlockedCells();
+    }
+
     /**
      * Tests if there are obstacles near the coordinates.
      *
@@ -159,10 +277,19 @@ public class Environment implements IntGrid{
      */
     @Override
     public boolean obstacleWithinDistance(int x, int y, int minDistance) {
+        if (locationExists(x, y)) {
+            DistanceField distances = obstacleDistances;
+            if (distances == null) {
+                distances = new DistanceField(columns, rows, this::obstacleAt);
+                obstacleDistances = distances;
+            }
+            return distances.obstacleWithinDistance(x, y, minDistance);
+        }
+        long maxDistanceSq = (long) minDistance * minDistance;
         for (int i = x - minDistance; i <= x + minDistance; i++) {
             for (int j = y - minDistance; j <= y + minDistance; j++) {
                 if (locationExists(i, j)
-                        && new Point(x, y).distance(i, j) <= minDistance
+                        && (long) (i - x) * (i - x) + (long) (j - y) * (j - y) <= maxDistanceSq
                         && obstacleAt(i, j)) {
                     return true;
                 }
@@ -177,10 +304,14 @@ public class Environment implements IntGrid{
      * @return int Number of cells
      */
     public int getTotalFreeSpace() {
+        return readOnly ? totalFreeSpace : countFreeSpace();
+    }
+
+    private int countFreeSpace() {
         int runningTotal = 0;
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                if (status[j][i].ordinal() < Status.obstacle.ordinal()) {
+                if (cells[i * columns + j] < Status.obstacle.ordinal()) {
                     runningTotal++;
                 }
             }
@@ -217,14 +348,14 @@ public class Environment implements IntGrid{
         if (!locationExists(sourceX, sourceY) || !locationExists(destX, destY)) {
             return false;
         }
-        if (status[destX][destY].ordinal() > ability)// == Environment.Status.obstacle)
+        if (obstacleAt(destX, destY, ability))// == Environment.Status.obstacle)
         {
             return false;
         }
         for (int i = Math.min(sourceX, destX); i <= Math.max(sourceX, destX); i++) {
             for (int j = Math.min(sourceY, destY); j <= Math.max(sourceY, destY); j++) {
                 if ((distPointToLine(sourceX, sourceY, destX, destY, i, j) < 0.5)
-                        && (status[i][j].ordinal() > ability)) //== Environment.Status.obstacle))
+                        && obstacleAt(i, j, ability)) //== Environment.Status.obstacle))
                 {
                     return false;
                 }
@@ -295,7 +426,7 @@ public class Environment implements IntGrid{
             currX = x1 + (int) (Math.cos(angle) * i);
             currY = y1 + (int) (Math.sin(angle) * i);
 
-            if (this.statusAt(currX, currY).ordinal() >= Status.obstacle.ordinal()) {
+            if (cells[index(currX, currY)] >= Status.obstacle.ordinal()) {
                 if (!insideWall) {
                     counter++;
                     insideWall = true;
@@ -48,13 +48,16 @@ import agents.RealAgent;
 import config.SimConstants;
 import java.awt.Point;
 import java.awt.Polygon;
+import java.io.Serializable;
 import java.util.LinkedList;
 
 /**
  *
  * @author julh
  */
-public class Frontier implements Comparable<Frontier> {
+public class Frontier implements Comparable<Frontier>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private Point centre;
     private double distanceToCentre;
@@ -0,0 +1,168 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A set of cells of a grid as a bitset over the cell numbers y * width + x, so adding, removing
+ * and iterating need no objects. Iterate with
+ * {@code for (int cell = set.nextCell(0); cell >= 0; cell = set.nextCell(cell + 1))}.
+ *
+ * @author Christian Clausen
+ */
+public class IntCellSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int width;
+    private final int height;
+    private final long[] words;
+    private int size;
+
+    public IntCellSet(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = new long[(width * height + 63) >>> 6];
+    }
+
+    private IntCellSet(IntCellSet toCopy) {
+        this.width = toCopy.width;
+        this.height = toCopy.height;
+        this.words = toCopy.words.clone();
+        this.size = toCopy.size;
+    }
+
+    public IntCellSet copy() {
+        return new IntCellSet(this);
+    }
+
+    /**
+     * @return true if the cell was not in the set before
+     */
+    public boolean add(int x, int y) {
+        int cell = y * width + x;
+        long bit = 1L << (cell & 63);
+        if ((words[cell >>> 6] & bit) != 0) {
+            return false;
+        }
+        words[cell >>> 6] |= bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if the cell was in the set
+     */
+    public boolean remove(int x, int y) {
+        int cell = y * width + x;
+        long bit = 1L << (cell & 63);
+        if ((words[cell >>> 6] & bit) == 0) {
+            return false;
+        }
+        words[cell >>> 6] &= ~bit;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        int cell = y * width + x;
+        return ((words[cell >>> 6] >>> (cell & 63)) & 1L) != 0;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(words, 0);
+            size = 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param fromCell first cell number to look at
+     * @return the number of the next cell in the set at or after fromCell, -1 if there is none
+     */
+    public int nextCell(int fromCell) {
+        if (fromCell < 0) {
+            fromCell = 0;
+        }
+        int w = fromCell >>> 6;
+        if (w >= words.length) {
+            return -1;
+        }
+        long bits = words[w] & (-1L << (fromCell & 63));
+        while (bits == 0) {
+            if (++w == words.length) {
+                return -1;
+            }
+            bits = words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @return x coordinate of a cell number
+     */
+    public int getX(int cell) {
+        return cell % width;
+    }
+
+    /**
+     * @return y coordinate of a cell number
+     */
+    public int getY(int cell) {
+        return cell / width;
+    }
+}
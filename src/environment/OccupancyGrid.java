@@ -50,18 +50,23 @@ import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.security.SecureRandom;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.imageio.ImageIO;
 
 /**
  *
  * @author julh
  */
-public class OccupancyGrid implements IntGrid {
+public class OccupancyGrid implements IntGrid, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * FreeSpace means something traversable where communication would work and agents might be
@@ -76,7 +81,43 @@ public class OccupancyGrid implements IntGrid {
     public enum OccGridBit {
         FreeSpace, Plane, Slope, Hill, Obstacle, SafeSpace, KnownAtBase, GotRelayed, FinalTopologicalMap
     }
-    private byte[][] grid;
+    /**
+     * The bits below GotRelayed describe the map, the others are only bookkeeping of the agent.
+     */
+    private static final int NUM_MAP_BITS = OccGridBit.GotRelayed.ordinal();
+    /**
+     * Bits that fit into the byte returned by getByte().
+     */
+    private static final int NUM_BYTE_BITS = 8;
+
+    /**
+     * Rows of a tile, tiles are one word (64 cells) wide. Each tile keeps the version of the last
+     * change to one of its cells, so merges can skip tiles that did not change since the last one.
+     */
+    private static final int TILE_ROWS = 32;
+
+    /**
+     * The cells as one bitplane per OccGridBit, cut into tiles. Every row starts at a new word, so
+     * cell (x, y) is bit x % 64 of word x / 64 of row y, and rows of different planes can be
+     * combined 64 cells at a time (e.g. free and not known at base is free & ~knownAtBase). A tile
+     * holds the words of its rows plane by plane: row y of plane b is word b * TILE_ROWS + y %
+     * TILE_ROWS. Copies share tiles until one of them writes to it, see tileShared. Tiles nobody
+     * wrote to yet are all EMPTY_TILE, so a large map only takes memory for what has been seen of it.
+     */
+    private static final long[] EMPTY_TILE = new long[OccGridBit.values().length * TILE_ROWS];
+    private long[][] tiles;
+    private boolean[] tileShared; // tile may be used by a copy too, so it is copied before writing
+    private int wordsPerRow;
+    private int numTileRows;
+    // random start, so grids restored from a checkpoint do not get the ids of new grids
+    private static final AtomicLong NEXT_ID = new AtomicLong(new SecureRandom().nextLong());
+    private long id; // the same for all copies of a grid
+    private long[] tileVersions;
+    /**
+     * For each grid merged into this one (by id): per tile the version of the partner tile and of
+     * our tile after the last merge that left the tile equal in both, -1 if there is none.
+     */
+    private HashMap<Long, long[]> mergedTiles;
     public int height;
     public int width;
 
@@ -88,54 +129,86 @@ public class OccupancyGrid implements IntGrid {
      * List of cells that are free, not known at base and are not being relayed these are the cells
      * that we are currently "responsible" for delivering to base
      */
-    private HashMap<Point, Integer> cellsFreeNotKnownAtBaseNotRelayed;
-    // log the changes so we don't have to process every caell each time we merge grids
-    private HashMap<Point, Integer> cellsChanged;
+    private IntCellSet cellsFreeNotKnownAtBaseNotRelayed;
+    private boolean ownedCellsShared; // cellsFreeNotKnownAtBaseNotRelayed may be used by a copy too
 
     //this is a flag that can be used to check if occupancy grid has changed since it was last set to 'false'
     //used primarily to decide if we need to rebuild topological map
     private int mapCellsChanged;
-    private int hashCode = 0;
+    private long version; // counts the writes that changed a cell
+    /**
+     * XOR of cellKey() over all bits set in the grid, kept up to date by setBit(), so equal grids
+     * have equal hashes whatever way they got there.
+     */
+    private long zobristHash;
     private int[][] skeleton;
     private LinkedList<Point> skeletonList;
 
+    // cells counted by the summed-area tables
+    private static final int KNOWN_CELLS = 0; // free space or obstacle
+    private static final int SAFE_CELLS = 1;
+    /**
+     * Summed-area tables for counting cells in rectangles, built when first needed. Entry
+     * (y + 1) * (width + 1) + x + 1 is the number of cells in columns 0..x of rows 0..y. Changes to
+     * a row invalidate the table from that row on, it is brought up to date row by row as far as
+     * a query needs it.
+     */
+    private transient int[][] summedAreas;
+    private transient int[] summedRowsValid; // table rows up to this one are up to date
+    /**
+     * Distances to the nearest obstacle up to SimConstants.MAX_TRACKED_WALL_DISTANCE, built when
+     * first needed. Changing an obstacle marks its tile, before the next query the cells around
+     * marked tiles are recomputed.
+     */
+    private transient DistanceField obstacleDistances;
+    private transient boolean[] obstacleTilesChanged;
+    private transient int numObstacleTilesChanged;
+
     public OccupancyGrid(int newWidth, int newHeight) {
         width = newWidth;
         height = newHeight;
-        grid = new byte[width][height];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                grid[i][j] = 0;
-            }
-        }
+        wordsPerRow = (width + 63) >>> 6;
+        numTileRows = (height + TILE_ROWS - 1) / TILE_ROWS;
+        tiles = new long[wordsPerRow * numTileRows][];
+        Arrays.fill(tiles, EMPTY_TILE);
+        tileShared = new boolean[tiles.length];
+        Arrays.fill(tileShared, true);
+        id = NEXT_ID.getAndIncrement();
+        tileVersions = new long[tiles.length];
+        mergedTiles = new HashMap<>();
 
         cellsMarkedAsFreeAndRelayedAndNotKnownAtBase = 0;
         cellsMarkedAsFreeAndKnownAtBase = 0;
         cellsMarkedAsFree = 0;
 
-        cellsFreeNotKnownAtBaseNotRelayed = new HashMap<Point, Integer>();
-        cellsChanged = new HashMap<Point, Integer>();
+        cellsFreeNotKnownAtBaseNotRelayed = new IntCellSet(width, height);
 
         mapCellsChanged = SimConstants.MAP_CHANGED_THRESHOLD + 1;
         skeletonList = new LinkedList<>();
     }
 
+    /**
+     * @return a copy of this grid that shares the cells with it until one of both changes them,
+     * so it costs about as much as the number of tiles
+     */
     public OccupancyGrid copy() {
         OccupancyGrid copyGrid = new OccupancyGrid(width, height);
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                copyGrid.setByte(i, j, getByte(i, j));
-            }
-        }
+        copyGrid.tiles = tiles.clone();
+        Arrays.fill(tileShared, true);
+        Arrays.fill(copyGrid.tileShared, true);
+        copyGrid.version = version;
+        copyGrid.id = id;
+        System.arraycopy(tileVersions, 0, copyGrid.tileVersions, 0, tileVersions.length);
         copyGrid.cellsMarkedAsFreeAndKnownAtBase = cellsMarkedAsFreeAndKnownAtBase;
         copyGrid.cellsMarkedAsFreeAndRelayedAndNotKnownAtBase = cellsMarkedAsFreeAndRelayedAndNotKnownAtBase;
         copyGrid.cellsMarkedAsFree = cellsMarkedAsFree;
 
-        copyGrid.cellsFreeNotKnownAtBaseNotRelayed = (HashMap<Point, Integer>) cellsFreeNotKnownAtBaseNotRelayed.clone();
+        copyGrid.cellsFreeNotKnownAtBaseNotRelayed = cellsFreeNotKnownAtBaseNotRelayed;
+        ownedCellsShared = true;
+        copyGrid.ownedCellsShared = true;
 
         copyGrid.mapCellsChanged = mapCellsChanged;
-        copyGrid.cellsChanged = (HashMap<Point, Integer>) cellsChanged.clone();
-        copyGrid.hashCode = hashCode();
+        copyGrid.zobristHash = zobristHash;
         return copyGrid;
     }
 
@@ -151,18 +224,34 @@ public class OccupancyGrid implements IntGrid {
             return false;
         }
 
-        return Arrays.equals(grid, ((OccupancyGrid) obj).grid);
+        OccupancyGrid other = (OccupancyGrid) obj;
+        if (width != other.width || height != other.height || zobristHash != other.zobristHash) {
+            return false;
+        }
+        for (int t = 0; t < tiles.length; t++) {
+            // tiles shared since a copy need no comparison
+            if (tiles[t] != other.tiles[t] && !Arrays.equals(tiles[t], other.tiles[t])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        if (this.hashCode != 0) {
-            return this.hashCode;
-        } else {
-            int hash = 5;
-            hash = 73 * hash + Arrays.deepHashCode(this.grid);
-            return hash;
-        }
+        return (int) (zobristHash ^ (zobristHash >>> 32));
+    }
+
+    /**
+     * @return a random looking 64 bit key for one bit of one cell, the same in every run, so that
+     * hashes in checkpoints stay valid
+     */
+    private static long cellKey(int x, int y, int bit) {
+        // SplitMix64 finalizer
+        long z = ((((long) y << 32) | x) << 4 | bit) + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     public void saveToPNG(String filename) {
@@ -188,20 +277,56 @@ public class OccupancyGrid implements IntGrid {
         }
     }
 
-    //TODO: should be able to make this more efficient
+    /**
+     * Merges the map of a teammate into this grid. Tiles that neither grid changed since a merge
+     * with the same grid left them equal are skipped, so the cost depends on what changed since
+     * the last contact.
+     *
+     * @param partnerOccGrid grid of the teammate
+     * @param withBaseStation true if one of both is the base station
+     * @return the cells that differed
+     */
     public LinkedList<Point> mergeGrid(OccupancyGrid partnerOccGrid, boolean withBaseStation) {
         LinkedList<Point> cellsUpdated = new LinkedList();
-        if (this.hashCode() == partnerOccGrid.hashCode()) {
+        if (this.equals(partnerOccGrid)) {
             return cellsUpdated;
         }
         this.skeleton = null;
         this.skeletonList.clear();
-        this.hashCode = 0;
         int totalCellsTransferred = 0;
         int cellsSetKnownAtBase = 0;
-        for (int i = 0; i < this.width; i++) {
-            for (int j = 0; j < this.height; j++) {
-                if (this.getByteNoRelay(i, j) != partnerOccGrid.getByteNoRelay(i, j)) {
+        long[] merged = mergedTiles.get(partnerOccGrid.id);
+        if (merged == null) {
+            merged = new long[2 * tileVersions.length];
+            Arrays.fill(merged, -1);
+            mergedTiles.put(partnerOccGrid.id, merged);
+        }
+        boolean[] skipTile = new boolean[wordsPerRow];
+        for (int j = 0; j < this.height; j++) {
+            int tileRow = j / TILE_ROWS;
+            int row = j % TILE_ROWS;
+            if (row == 0) {
+                for (int w = 0; w < wordsPerRow; w++) {
+                    int t = tileRow * wordsPerRow + w;
+                    // tiles still shared since a copy are the same anyway
+                    skipTile[w] = tiles[t] == partnerOccGrid.tiles[t]
+                            || (partnerOccGrid.tileVersions[t] == merged[2 * t] && tileVersions[t] == merged[2 * t + 1]);
+                }
+            }
+            for (int w = 0; w < wordsPerRow; w++) {
+                if (skipTile[w]) {
+                    continue;
+                }
+                long[] tile = tiles[tileRow * wordsPerRow + w];
+                long[] partnerTile = partnerOccGrid.tiles[tileRow * wordsPerRow + w];
+                long differs = 0;
+                for (int b = 0; b < NUM_MAP_BITS; b++) {
+                    differs |= tile[b * TILE_ROWS + row] ^ partnerTile[b * TILE_ROWS + row];
+                }
+                // cells that are the same in both grids are skipped 64 at a time
+                while (differs != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(differs);
+                    differs &= differs - 1;
                     totalCellsTransferred++;
 
                     // if the information is completely new, get relay status
@@ -276,8 +401,17 @@ public class OccupancyGrid implements IntGrid {
                         }
                     }
                     cellsUpdated.add(new Point(i, j));
+                    assert (this.getByteNoRelay(i, j) == partnerOccGrid.getByteNoRelay(i, j));
+                }
+            }
+            if (row == TILE_ROWS - 1 || j == height - 1) {
+                for (int w = 0; w < wordsPerRow; w++) {
+                    int t = tileRow * wordsPerRow + w;
+                    if (!skipTile[w] && tileEquals(partnerOccGrid, tileRow, w)) {
+                        merged[2 * t] = partnerOccGrid.tileVersions[t];
+                        merged[2 * t + 1] = tileVersions[t];
+                    }
                 }
-                assert (this.getByteNoRelay(i, j) == partnerOccGrid.getByteNoRelay(i, j));
             }
         }
         if (SimConstants.DEBUG_OUTPUT) {
@@ -286,6 +420,23 @@ public class OccupancyGrid implements IntGrid {
         return cellsUpdated;
     }
 
+    /**
+     * @return true if the map bits of the tile are the same in both grids
+     */
+    private boolean tileEquals(OccupancyGrid other, int tileRow, int w) {
+        long[] tile = tiles[tileRow * wordsPerRow + w];
+        long[] otherTile = other.tiles[tileRow * wordsPerRow + w];
+        if (tile == otherTile) {
+            return true;
+        }
+        for (int i = 0; i < NUM_MAP_BITS * TILE_ROWS; i++) {
+            if (tile[i] != otherTile[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Is freeSpace/not obstacle and has unknown cell around (frontier-cell)
      *
@@ -326,6 +477,51 @@ public class OccupancyGrid implements IntGrid {
         return false;
     }
 
+    /**
+     * Finds all frontier cells at once, 64 cells at a time: the unknown cells are grown by one cell
+     * in every direction and cut with the free cells. Cells outside the grid count as known.
+     *
+     * @return the cells for which frontierCellAt() is true
+     */
+    public CellMask getFrontierMask() {
+        long[] free = getPlane(OccGridBit.FreeSpace);
+        long[] obstacle = getPlane(OccGridBit.Obstacle);
+        long lastWordBits = -1L >>> (64 - (width - ((wordsPerRow - 1) << 6)));
+        // unknown cells grown to their left and right neighbours
+        long[] grown = new long[free.length];
+        for (int j = 0; j < height; j++) {
+            int start = j * wordsPerRow;
+            long previous = 0;
+            long current = ~(free[start] | obstacle[start]) & (wordsPerRow == 1 ? lastWordBits : -1L);
+            for (int w = 0; w < wordsPerRow; w++) {
+                int k = start + w;
+                long next = 0;
+                if (w + 1 < wordsPerRow) {
+                    next = ~(free[k + 1] | obstacle[k + 1]) & (w + 2 == wordsPerRow ? lastWordBits : -1L);
+                }
+                grown[k] = current | (current << 1) | (previous >>> 63) | (current >>> 1) | (next << 63);
+                previous = current;
+                current = next;
+            }
+        }
+        // and to the rows above and below
+        long[] frontier = new long[free.length];
+        for (int j = 0; j < height; j++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                int k = j * wordsPerRow + w;
+                long around = grown[k];
+                if (j > 0) {
+                    around |= grown[k - wordsPerRow];
+                }
+                if (j < height - 1) {
+                    around |= grown[k + wordsPerRow];
+                }
+                frontier[k] = free[k] & ~obstacle[k] & around;
+            }
+        }
+        return new CellMask(frontier, width, height);
+    }
+
     public boolean isInOpenSpace(int xCoord, int yCoord) {
         for (int i = xCoord - 1; i <= xCoord + 1; i++) {
             for (int j = yCoord - 1; j <= yCoord + 1; j++) {
@@ -367,7 +563,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean freeSpaceAt(int xCoord, int yCoord) {
-        if (getBit(xCoord, yCoord, OccGridBit.FreeSpace.ordinal()) == 1) {
+        if (hasBit(xCoord, yCoord, OccGridBit.FreeSpace)) {
             assert (!obstacleAt(xCoord, yCoord));
             return true;
         } else {
@@ -389,7 +585,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean isFinalTopologicalMapCell(int xCoord, int yCoord) {
-        return (getBit(xCoord, yCoord, OccGridBit.FinalTopologicalMap.ordinal()) == 1);
+        return (hasBit(xCoord, yCoord, OccGridBit.FinalTopologicalMap));
     }
 
     public void setFinalTopologicalMapCell(int xCoord, int yCoord) {
@@ -401,7 +597,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean isKnownAtBase(int xCoord, int yCoord) {
-        return (getBit(xCoord, yCoord, OccGridBit.KnownAtBase.ordinal()) == 1);
+        return (hasBit(xCoord, yCoord, OccGridBit.KnownAtBase));
     }
 
     public void setKnownAtBase(int xCoord, int yCoord) {
@@ -410,8 +606,7 @@ public class OccupancyGrid implements IntGrid {
             if (isGotRelayed(xCoord, yCoord)) {
                 cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
             } else if (freeSpaceAt(xCoord, yCoord)) {
-                Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
-                if (success == null) {
+                if (!ownedCells().remove(xCoord, yCoord)) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
                                 + "that is not in the list! xCoord = " + xCoord + ", yCoord = " + yCoord);
@@ -423,7 +618,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean isGotRelayed(int xCoord, int yCoord) {
-        return getBit(xCoord, yCoord, OccGridBit.GotRelayed.ordinal()) == 1;
+        return hasBit(xCoord, yCoord, OccGridBit.GotRelayed);
     }
 
     // Marks this cell as being relayed to base by another robot
@@ -436,8 +631,7 @@ public class OccupancyGrid implements IntGrid {
         if (!isGotRelayed(xCoord, yCoord) && freeSpaceAt(xCoord, yCoord) && !isKnownAtBase(xCoord, yCoord)) {
             cellsMarkedAsFreeAndRelayedAndNotKnownAtBase++;
             if (updateOwnedCellsList && freeSpaceAt(xCoord, yCoord) && !isKnownAtBase(xCoord, yCoord)) {
-                Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
-                if (success == null) {
+                if (!ownedCells().remove(xCoord, yCoord)) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
                                 + "that is not in the list! xCoord = " + xCoord + ", yCoord = " + yCoord);
@@ -453,7 +647,7 @@ public class OccupancyGrid implements IntGrid {
     public void setGotUnrelayed(int xCoord, int yCoord) {
         if (isGotRelayed(xCoord, yCoord) && freeSpaceAt(xCoord, yCoord) && !isKnownAtBase(xCoord, yCoord)) {
             cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
-            cellsFreeNotKnownAtBaseNotRelayed.put(new Point(xCoord, yCoord), 1);
+            ownedCells().add(xCoord, yCoord);
         }
         assert (cellsMarkedAsFreeAndRelayedAndNotKnownAtBase >= 0);
         setBit(xCoord, yCoord, OccupancyGrid.OccGridBit.GotRelayed, 0);
@@ -485,7 +679,7 @@ public class OccupancyGrid implements IntGrid {
                 } else if (isGotRelayed(xCoord, yCoord)) {
                     cellsMarkedAsFreeAndRelayedAndNotKnownAtBase++;
                 } else {
-                    cellsFreeNotKnownAtBaseNotRelayed.put(new Point(xCoord, yCoord), 1);
+                    ownedCells().add(xCoord, yCoord);
                 }
 
             }
@@ -502,8 +696,7 @@ public class OccupancyGrid implements IntGrid {
             } else if (isGotRelayed(xCoord, yCoord)) {
                 cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
             } else {
-                Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
-                if (success == null) {
+                if (!ownedCells().remove(xCoord, yCoord)) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
                                 + "that is not in the list! xCoord = " + xCoord + ", yCoord = " + yCoord);
@@ -529,7 +722,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean safeSpaceAt(int xCoord, int yCoord) {
-        return getBit(xCoord, yCoord, OccGridBit.SafeSpace.ordinal()) == 1;
+        return hasBit(xCoord, yCoord, OccGridBit.SafeSpace);
     }
 
     public void setSafeSpaceAt(int xCoord, int yCoord) {
@@ -549,7 +742,7 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public boolean obstacleAt(int xCoord, int yCoord) {
-        return getBit(xCoord, yCoord, OccGridBit.Obstacle.ordinal()) == 1;
+        return hasBit(xCoord, yCoord, OccGridBit.Obstacle);
     }
 
     public void setObstacleAt(int xCoord, int yCoord) {
@@ -565,17 +758,19 @@ public class OccupancyGrid implements IntGrid {
     // List of cells that are free, not known at base and are not being relayed
     // these are the cells that we are currently "responsible" for delivering to base
     // Used in UtilityExploration to decide who should be the new agent responsible for delivery of the map cells
-    public Collection<Point> getOwnedCells() {
-        return cellsFreeNotKnownAtBaseNotRelayed.keySet();
+    // The set must not be changed by the caller.
+    public IntCellSet getOwnedCells() {
+        return cellsFreeNotKnownAtBaseNotRelayed;
     }
 
     // Makes our robot not responsible for delivery of any cells to the base station
     // Returns number of cells affected
     // Used in UtilityExploration
     public int setOwnedCellsRelayed() {
-        getOwnedCells().stream().forEach((point) -> {
-            setGotRelayed(point.x, point.y, false);
-        });
+        IntCellSet owned = getOwnedCells();
+        for (int cell = owned.nextCell(0); cell >= 0; cell = owned.nextCell(cell + 1)) {
+            setGotRelayed(owned.getX(cell), owned.getY(cell), false);
+        }
         int counter = getOwnedCells().size();
         resetOwnedCells();
         return counter;
@@ -597,33 +792,183 @@ public class OccupancyGrid implements IntGrid {
 
     // Used for UtilityExploration
     private void resetOwnedCells() {
-        cellsFreeNotKnownAtBaseNotRelayed.clear();
+        ownedCells().clear();
+    }
+
+    /**
+     * @return cellsFreeNotKnownAtBaseNotRelayed, ready to be changed
+     */
+    private IntCellSet ownedCells() {
+        if (ownedCellsShared) {
+            cellsFreeNotKnownAtBaseNotRelayed = cellsFreeNotKnownAtBaseNotRelayed.copy();
+            ownedCellsShared = false;
+        }
+        return cellsFreeNotKnownAtBaseNotRelayed;
     }
 
+    /**
+     * @return the tile holding the cell
+     * @throws ArrayIndexOutOfBoundsException if the cell is not in the grid
+     */
+    private long[] tile(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("ERROR: Array index out of bounds at x=" + x + ", y=" + y + ".");
+        }
+        return tiles[(y / TILE_ROWS) * wordsPerRow + (x >>> 6)];
+    }
+
+    /**
+     * @return word w of row y in the plane of the bit
+     */
+    private long word(int bit, int y, int w) {
+        return tiles[(y / TILE_ROWS) * wordsPerRow + w][bit * TILE_ROWS + y % TILE_ROWS];
+    }
+
+    private boolean hasBit(int x, int y, OccGridBit bit) {
+        return ((tile(x, y)[bit.ordinal() * TILE_ROWS + y % TILE_ROWS] >>> (x & 63)) & 1L) != 0;
+    }
+
+    private int getBits(int x, int y, int numBits) {
+        long[] tile = tile(x, y);
+        int row = y % TILE_ROWS;
+        int shift = x & 63;
+        int cell = 0;
+        for (int b = 0; b < numBits; b++) {
+            cell |= (int) ((tile[b * TILE_ROWS + row] >>> shift) & 1L) << b;
+        }
+        return cell;
+    }
+
+    /**
+     * @return the bits of the cell up to GotRelayed, one bit per OccGridBit ordinal
+     */
     public byte getByte(int x, int y) {
-        return grid[x][y];
+        return (byte) getBits(x, y, NUM_BYTE_BITS);
     }
 
     public byte getByteNoRelay(int x, int y) {
-        return (byte) (grid[x][y] & ~(1 << OccGridBit.GotRelayed.ordinal())
-                & ~(1 << OccGridBit.FinalTopologicalMap.ordinal()));
+        return (byte) getBits(x, y, NUM_MAP_BITS);
     }
 
     public int getBit(int xCoord, int yCoord, int bit) {
-        try {
-            if ((grid[xCoord][yCoord] & (byte) (Math.pow(2, bit))) > 0) {
-                return 1;
-            } else {
-                return 0;
+        long[] tile = tile(xCoord, yCoord);
+        if (bit < 0 || bit >= OccGridBit.values().length) {
+            return 0;
+        }
+        return (int) ((tile[bit * TILE_ROWS + yCoord % TILE_ROWS] >>> (xCoord & 63)) & 1L);
+    }
+
+    /**
+     * @return number of words of a row in getPlaneRow()
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Copies a row of one bitplane: cell x of the row is bit x % 64 of dest[x / 64], bits past the
+     * width are 0. Rows of several planes can be combined a word at a time.
+     *
+     * @param bit the plane
+     * @param y the row
+     * @param dest array of at least getWordsPerRow() words
+     */
+    public void getPlaneRow(OccGridBit bit, int y, long[] dest) {
+        tile(0, y);
+        for (int w = 0; w < wordsPerRow; w++) {
+            dest[w] = word(bit.ordinal(), y, w);
+        }
+    }
+
+    /**
+     * @return the whole plane of the bit, row y starting at word y * getWordsPerRow()
+     */
+    private long[] getPlane(OccGridBit bit) {
+        long[] plane = new long[height * wordsPerRow];
+        for (int w = 0; w < wordsPerRow; w++) {
+            for (int tileRow = 0; tileRow < numTileRows; tileRow++) {
+                long[] tile = tiles[tileRow * wordsPerRow + w];
+                int lastRow = Math.min(TILE_ROWS, height - tileRow * TILE_ROWS);
+                for (int row = 0; row < lastRow; row++) {
+                    plane[(tileRow * TILE_ROWS + row) * wordsPerRow + w] = tile[bit.ordinal() * TILE_ROWS + row];
+                }
+            }
+        }
+        return plane;
+    }
+
+    /**
+     * Copies the cells of a row, as returned by getByte(), so that loops over many cells do not
+     * have to go through the grid for each of them. Decode them with isFreeSpace(), isObstacle()
+     * and hasBit().
+     *
+     * @param y the row
+     * @param dest array of at least width bytes, cell x of the row is written to dest[x]
+     */
+    public void getRow(int y, byte[] dest) {
+        tile(0, y);
+        Arrays.fill(dest, 0, width, (byte) 0);
+        for (int b = 0; b < NUM_BYTE_BITS; b++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long bits = word(b, y, w);
+                while (bits != 0) {
+                    dest[(w << 6) + Long.numberOfTrailingZeros(bits)] |= (byte) (1 << b);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the cells of a rectangle row by row, cell (x + i, y + j) is written to
+     * dest[j * w + i]. The rectangle has to lie within the grid.
+     *
+     * @param x left column
+     * @param y top row
+     * @param w number of columns
+     * @param h number of rows
+     * @param dest array of at least w * h bytes
+     */
+    public void getRect(int x, int y, int w, int h, byte[] dest) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        tile(x + w - 1, y + h - 1);
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                dest[j * w + i] = getByte(x + i, y + j);
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new ArrayIndexOutOfBoundsException("ERROR: Array index out of bounds at x=" + xCoord + ", y=" + yCoord + ".");
         }
     }
 
+    /**
+     * @param cell a cell as returned by getByte(), getRow() or getRect()
+     * @param bit the bit to test, FinalTopologicalMap is not part of the byte
+     * @return true if the bit is set
+     */
+    public static boolean hasBit(byte cell, OccGridBit bit) {
+        return bit.ordinal() < NUM_BYTE_BITS && ((cell >> bit.ordinal()) & 1) != 0;
+    }
+
+    /**
+     * @param cell a cell as returned by getByte(), getRow() or getRect()
+     * @return the same as freeSpaceAt() for that cell
+     */
+    public static boolean isFreeSpace(byte cell) {
+        return hasBit(cell, OccGridBit.FreeSpace);
+    }
+
+    /**
+     * @param cell a cell as returned by getByte(), getRow() or getRect()
+     * @return the same as obstacleAt() for that cell
+     */
+    public static boolean isObstacle(byte cell) {
+        return hasBit(cell, OccGridBit.Obstacle);
+    }
+
     public String toString(int xCoord, int yCoord) {
         String bitString = new String();
-        for (int i = 0; i < 8; i++) {
+        for (int i = 0; i < OccGridBit.values().length; i++) {
             bitString = bitString.concat(Integer.toString(getBit(xCoord, yCoord, i)));
         }
         return (this.toString() + "Byte at " + xCoord + ", " + yCoord + " has value " + bitString);
@@ -705,41 +1050,159 @@ public class OccupancyGrid implements IntGrid {
     // Returns distance to nearest wall, up to a maximum distance
     @Override
     public boolean obstacleWithinDistance(int x, int y, int minDistance) {
-        for (int i = x - minDistance; i <= x + minDistance; i++) {
-            for (int j = y - minDistance; j <= y + minDistance; j++) {
-                if (locationExists(i, j)
-                        && new Point(x, y).distance(i, j) <= minDistance
-                        && obstacleAt(i, j)) {
-                    return true;
-                }
+        if (minDistance < 0) {
+            return false;
+        }
+        if (locationExists(x, y) && minDistance <= SimConstants.MAX_TRACKED_WALL_DISTANCE) {
+            return getObstacleDistances().obstacleWithinDistance(x, y, minDistance);
+        }
+        long maxDistanceSq = (long) minDistance * minDistance;
+        int maxY = Math.min(height - 1, y + minDistance);
+        for (int j = Math.max(0, y - minDistance); j <= maxY; j++) {
+            // widest dx with dx * dx + dy * dy <= minDistance * minDistance
+            long rest = maxDistanceSq - (long) (j - y) * (j - y);
+            int dx = (int) Math.sqrt(rest);
+            while ((long) dx * dx > rest) {
+                dx--;
+            }
+            while ((long) (dx + 1) * (dx + 1) <= rest) {
+                dx++;
+            }
+            if (countInRow(OccGridBit.Obstacle, null, null, j, x - dx, x + dx) > 0) {
+                return true;
             }
         }
         return false;
     }
 
-    public int getEmptySpacesWithinSquare(int x, int y, int minDistance) {
-        int count = 0;
-        for (int i = x - minDistance; i <= x + minDistance; i++) {
-            for (int j = y - minDistance; j <= y + minDistance; j++) {
-                if (locationExists(i, j)
-                        && /*new Point(x,y).distance(i,j) <= minDistance &&*/ emptyAt(i, j) && ((i != x) || (j != y))) {
-                    count++;
+    private DistanceField getObstacleDistances() {
+        // with its margin a changed tile costs about three tiles to recompute, past that the whole
+        // map is cheaper
+        if (obstacleDistances == null || numObstacleTilesChanged * 3 > tiles.length) {
+            obstacleDistances = new DistanceField(width, height, SimConstants.MAX_TRACKED_WALL_DISTANCE, this::obstacleAt);
+            obstacleTilesChanged = new boolean[tiles.length];
+        } else if (numObstacleTilesChanged > 0) {
+            for (int tileRow = 0; tileRow < numTileRows; tileRow++) {
+                int w = 0;
+                while (w < wordsPerRow) {
+                    if (!obstacleTilesChanged[tileRow * wordsPerRow + w]) {
+                        w++;
+                        continue;
+                    }
+                    // neighbouring changed tiles are recomputed together
+                    int first = w;
+                    while (w < wordsPerRow && obstacleTilesChanged[tileRow * wordsPerRow + w]) {
+                        obstacleTilesChanged[tileRow * wordsPerRow + w] = false;
+                        w++;
+                    }
+                    obstacleDistances.update(first << 6, tileRow * TILE_ROWS,
+                            Math.min(width, w << 6) - 1, Math.min(height, (tileRow + 1) * TILE_ROWS) - 1,
+                            this::obstacleAt);
                 }
             }
         }
-        return count;
+        numObstacleTilesChanged = 0;
+        return obstacleDistances;
+    }
+
+    public int getEmptySpacesWithinSquare(int x, int y, int minDistance) {
+        int area = countInSquare(-1, x, y, minDistance);
+        int known = countInSquare(KNOWN_CELLS, x, y, minDistance);
+        if (minDistance >= 0 && locationExists(x, y) && !freeSpaceAt(x, y) && !obstacleAt(x, y)) {
+            area--; // (x, y) itself is not counted
+        }
+        return area - known;
     }
 
     public int getSafeSpacesWithinSquare(int x, int y, int minDistance) {
-        int count = 0;
-        for (int i = x - minDistance; i <= x + minDistance; i++) {
-            for (int j = y - minDistance; j <= y + minDistance; j++) {
-                if (locationExists(i, j)
-                        && /*new Point(x,y).distance(i,j) < minDistance &&*/ safeSpaceAt(i, j) && ((i != x) || (j != y))) {
-                    count++;
+        int safe = countInSquare(SAFE_CELLS, x, y, minDistance);
+        if (minDistance >= 0 && locationExists(x, y) && safeSpaceAt(x, y)) {
+            safe--; // (x, y) itself is not counted
+        }
+        return safe;
+    }
+
+    /**
+     * Counts the cells of a kind within the square around (x, y), clipped to the grid, with the
+     * summed-area table of that kind.
+     *
+     * @param counted KNOWN_CELLS, SAFE_CELLS or -1 for all cells
+     */
+    private int countInSquare(int counted, int x, int y, int minDistance) {
+        int minX = Math.max(0, x - minDistance);
+        int maxX = Math.min(width - 1, x + minDistance);
+        int minY = Math.max(0, y - minDistance);
+        int maxY = Math.min(height - 1, y + minDistance);
+        if (minX > maxX || minY > maxY) {
+            return 0;
+        }
+        if (counted < 0) {
+            return (maxX - minX + 1) * (maxY - minY + 1);
+        }
+        int[] table = getSummedAreas(counted, maxY + 1);
+        int stride = width + 1;
+        return table[(maxY + 1) * stride + maxX + 1] - table[minY * stride + maxX + 1]
+                - table[(maxY + 1) * stride + minX] + table[minY * stride + minX];
+    }
+
+    /**
+     * @return the summed-area table, up to date at least up to table row lastRow
+     */
+    private int[] getSummedAreas(int counted, int lastRow) {
+        if (summedAreas == null) {
+            summedAreas = new int[2][];
+            summedRowsValid = new int[2];
+        }
+        if (summedAreas[counted] == null) {
+            summedAreas[counted] = new int[(width + 1) * (height + 1)];
+            summedRowsValid[counted] = 0;
+        }
+        int[] table = summedAreas[counted];
+        int stride = width + 1;
+        for (int r = summedRowsValid[counted] + 1; r <= lastRow; r++) {
+            int y = r - 1;
+            int rowSum = 0;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long bits = counted == SAFE_CELLS ? word(OccGridBit.SafeSpace.ordinal(), y, w)
+                        : word(OccGridBit.FreeSpace.ordinal(), y, w) | word(OccGridBit.Obstacle.ordinal(), y, w);
+                int lastX = Math.min(width, (w + 1) << 6);
+                for (int x = w << 6; x < lastX; x++) {
+                    rowSum += (int) ((bits >>> (x & 63)) & 1L);
+                    table[r * stride + x + 1] = table[(r - 1) * stride + x + 1] + rowSum;
                 }
             }
         }
+        summedRowsValid[counted] = Math.max(summedRowsValid[counted], lastRow);
+        return table;
+    }
+
+    /**
+     * Counts the cells of row y from fromX to toX (clipped to the grid) that have bit set and
+     * neither notSet1 nor notSet2, each of them may be null.
+     */
+    private int countInRow(OccGridBit set, OccGridBit notSet1, OccGridBit notSet2, int y, int fromX, int toX) {
+        fromX = Math.max(0, fromX);
+        toX = Math.min(width - 1, toX);
+        int count = 0;
+        for (int w = fromX >>> 6; fromX <= toX && w <= toX >>> 6; w++) {
+            long bits = -1L;
+            if ((w << 6) < fromX) {
+                bits <<= fromX - (w << 6);
+            }
+            if ((w << 6) + 63 > toX) {
+                bits &= -1L >>> (63 - (toX - (w << 6)));
+            }
+            if (set != null) {
+                bits &= word(set.ordinal(), y, w);
+            }
+            if (notSet1 != null) {
+                bits &= ~word(notSet1.ordinal(), y, w);
+            }
+            if (notSet2 != null) {
+                bits &= ~word(notSet2.ordinal(), y, w);
+            }
+            count += Long.bitCount(bits);
+        }
         return count;
     }
 
@@ -811,26 +1274,42 @@ public class OccupancyGrid implements IntGrid {
     }
 
     private void setBit(int xCoord, int yCoord, int bit, int value) {
-        hashCode = 0; // something changed, so delete hashcode
-        this.skeleton = null; // and cached stuff
-        this.skeletonList.clear();
-        int bitValue = grid[xCoord][yCoord] & (byte) (Math.pow(2, bit));
-        if (bitValue == 0) {
-            if (value == 0) {
-                return;
-            } else {
-                grid[xCoord][yCoord] += (byte) (Math.pow(2, bit));
-            }
-        } else if (value == 1) {
+        long[] tile = tile(xCoord, yCoord);
+        int k = bit * TILE_ROWS + yCoord % TILE_ROWS;
+        long old = tile[k];
+        long mask = 1L << (xCoord & 63);
+        long bits = value == 0 ? old & ~mask : old | mask;
+        if (bits == old) {
             return;
-        } else {
-            grid[xCoord][yCoord] -= (byte) (Math.pow(2, bit));
         }
+        int t = (yCoord / TILE_ROWS) * wordsPerRow + (xCoord >>> 6);
+        if (tileShared[t]) {
+            tile = tile.clone();
+            tiles[t] = tile;
+            tileShared[t] = false;
+        }
+        tile[k] = bits;
+        zobristHash ^= cellKey(xCoord, yCoord, bit);
+        if (summedRowsValid != null) {
+            int counted = bit == OccGridBit.SafeSpace.ordinal() ? SAFE_CELLS : KNOWN_CELLS;
+            summedRowsValid[counted] = Math.min(summedRowsValid[counted], yCoord);
+        }
+        if (bit == OccGridBit.Obstacle.ordinal() && obstacleDistances != null && !obstacleTilesChanged[t]) {
+            obstacleTilesChanged[t] = true;
+            numObstacleTilesChanged++;
+        }
+        this.skeleton = null; // something changed, so delete cached stuff
+        this.skeletonList.clear();
+        version++;
+        tileVersions[t] = version;
     }
 
-    private void setByte(int x, int y, byte value) {
-        hashCode = 0; // something changed, so delete hashcode
-        grid[x][y] = value;
+    /**
+     * @return a number that changes whenever a cell of this grid changes, equal versions of the same
+     * grid mean equal content
+     */
+    public long getVersion() {
+        return version;
     }
 
     @Override
@@ -848,6 +1327,16 @@ public class OccupancyGrid implements IntGrid {
         return intGrid;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (int t = 0; t < tiles.length; t++) {
+            if (tiles[t].length < OccGridBit.values().length * TILE_ROWS) {
+                // saved before more bits were added, the new planes start empty
+                tiles[t] = Arrays.copyOf(tiles[t], OccGridBit.values().length * TILE_ROWS);
+            }
+        }
+    }
+
     public int[][] getSkeleton() {
         if (this.skeleton == null) {
             this.skeleton = Skeleton.findSkeleton(this, false);
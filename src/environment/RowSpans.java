@@ -0,0 +1,212 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * Cells as horizontal runs, span i covers cells getFromX(i) to getToX(i) of row getY(i). Spans are
+ * kept in flat arrays that grow as needed and are reused after clear().
+ *
+ * @author Christian Clausen
+ */
+public class RowSpans {
+
+    private int[] spans = new int[3 * 16]; // y, fromX, toX of every span
+    private int size;
+
+    // per row edge crossings for addPolygon(), kept between calls
+    private int[] rowStarts;
+    private int[] crossings;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getY(int i) {
+        return spans[3 * i];
+    }
+
+    public int getFromX(int i) {
+        return spans[3 * i + 1];
+    }
+
+    public int getToX(int i) {
+        return spans[3 * i + 2];
+    }
+
+    /**
+     * Adds cells fromX to toX of row y.
+     */
+    public void add(int y, int fromX, int toX) {
+        if (3 * size + 3 > spans.length) {
+            spans = Arrays.copyOf(spans, 2 * spans.length);
+        }
+        spans[3 * size] = y;
+        spans[3 * size + 1] = fromX;
+        spans[3 * size + 2] = toX;
+        size++;
+    }
+
+    /**
+     * Adds the cells (x, y) with 0 <= x < width and 0 <= y < height for which polygon.contains(x,
+     * y) is true, row by row. The edges are crossed the way Polygon.contains() does it, so the
+     * cells are exactly the same, but the cost is that of the cells and edge crossings instead of
+     * the bounding box times the number of vertices.
+     *
+     * @param polygon the polygon
+     * @param width cells from column width on are left out
+     * @param height cells from row height on are left out
+     */
+    public void addPolygon(Polygon polygon, int width, int height) {
+        int n = polygon.npoints;
+        if (n <= 2) {
+            return;
+        }
+        int[] xs = polygon.xpoints;
+        int[] ys = polygon.ypoints;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        // the bounding box contains a point if it is in [min, max)
+        int fromRow = Math.max(minY, 0);
+        int toRow = Math.min(maxY, height) - 1;
+        int fromColumn = Math.max(minX, 0);
+        int toColumn = Math.min(maxX, width) - 1;
+        if (fromRow > toRow || fromColumn > toColumn) {
+            return;
+        }
+        int rows = toRow - fromRow + 1;
+        if (rowStarts == null || rowStarts.length < rows + 1) {
+            rowStarts = new int[rows + 1];
+        }
+        Arrays.fill(rowStarts, 0, rows + 1, 0);
+
+        // count the edges crossing every row, then put them in place
+        for (int pass = 0; pass < 2; pass++) {
+            int lastX = xs[n - 1];
+            int lastY = ys[n - 1];
+            for (int i = 0; i < n; lastX = xs[i], lastY = ys[i], i++) {
+                int curX = xs[i];
+                int curY = ys[i];
+                if (curY == lastY) {
+                    continue;
+                }
+                // Polygon.contains() counts the edge for rows lowY <= y < highY
+                int lowY = Math.max(Math.min(curY, lastY), fromRow);
+                int highY = Math.min(Math.max(curY, lastY), toRow + 1);
+                for (int y = lowY; y < highY; y++) {
+                    if (pass == 0) {
+                        rowStarts[y - fromRow + 1]++;
+                    } else {
+                        crossings[rowStarts[y - fromRow]++] = crossing(curX, curY, lastX, lastY, y);
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int r = 0; r < rows; r++) {
+                    rowStarts[r + 1] += rowStarts[r];
+                }
+                if (crossings == null || crossings.length < rowStarts[rows]) {
+                    crossings = new int[Math.max(rowStarts[rows], 64)];
+                }
+            }
+        }
+        // the second pass moved every start to the start of the next row
+
+        for (int r = 0; r < rows; r++) {
+            int start = r == 0 ? 0 : rowStarts[r - 1];
+            int end = rowStarts[r];
+            Arrays.sort(crossings, start, end);
+            // a cell is inside if an odd number of edges cross the row to its right
+            for (int k = start; k < end; k++) {
+                if (((end - k) & 1) == 0) {
+                    continue;
+                }
+                int from = Math.max(k == start ? Integer.MIN_VALUE : crossings[k - 1], fromColumn);
+                int to = Math.min(crossings[k] - 1, toColumn);
+                if (from <= to) {
+                    add(fromRow + r, from, to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first column from which Polygon.contains() does not count the edge from (curX,
+     * curY) to (lastX, lastY) any more in row y
+     */
+    private static int crossing(int curX, int curY, int lastX, int lastY, int y) {
+        int leftX = Math.min(curX, lastX);
+        int rightX = Math.max(curX, lastX);
+        double test2;
+        int startX;
+        if (curY < lastY) {
+            test2 = y - curY;
+            startX = curX;
+        } else {
+            test2 = y - lastY;
+            startX = lastX;
+        }
+        // counted where x - startX < test2 / (lastY - curY) * (lastX - curX), always left of leftX
+        int x = startX + (int) Math.ceil(test2 / (lastY - curY) * (lastX - curX));
+        return Math.max(leftX, Math.min(x, rightX));
+    }
+}
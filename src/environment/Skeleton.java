@@ -322,12 +322,13 @@ public class Skeleton {
             boolean skeletonNearBorders) {
         int[][] freeSpaceGrid = new int[grid.width][grid.height];
 
-        for (int i = 0; i < grid.width; i++) {
-            for (int j = 0; j < grid.height; j++) {
-                if (grid.freeSpaceAt(i, j)) {//&& (!skeletonNearBorders || (!obstacleWithinDistance(grid, i, j, 5)))) {
-                    freeSpaceGrid[i][j] = 1;
-                } else {
-                    freeSpaceGrid[i][j] = 0;
+        long[] free = new long[grid.getWordsPerRow()];
+        for (int j = 0; j < grid.height; j++) {
+            grid.getPlaneRow(OccupancyGrid.OccGridBit.FreeSpace, j, free);
+            for (int w = 0; w < free.length; w++) {
+                //&& (!skeletonNearBorders || (!obstacleWithinDistance(grid, i, j, 5)))
+                for (long bits = free[w]; bits != 0; bits &= bits - 1) {
+                    freeSpaceGrid[(w << 6) + Long.numberOfTrailingZeros(bits)][j] = 1;
                 }
             }
         }
@@ -465,7 +466,7 @@ public class Skeleton {
         LinkedList<Point> pts = gridToList(skeleton);
         boolean addToRVlist;
         for (Point p : pts) {
-            if (p.x <= 1 || p.y <= 1 || p.x >= SimConstants.MAX_COLS - 2 || p.y >= SimConstants.MAX_ROWS - 2) {
+            if (p.x <= 1 || p.y <= 1 || p.x >= skeleton.length - 2 || p.y >= skeleton[0].length - 2) {
                 continue;
             }
             // First check if it's an endpoint
@@ -521,11 +522,15 @@ public class Skeleton {
         LinkedList<Point> pointsOfInterest = new LinkedList<Point>();
 
         //Initialize areaGrid - set unexplored areas to UNEXPLORED_NODE_ID, obstacles to -1, free space to 0.
-        for (int i = 0; i < areaGrid.length; i++) {
-            for (int j = 0; j < areaGrid[0].length; j++) {
-                if ((occGrid.obstacleAt(i, j)) || (i == 0) || (j == 0) || (i == (areaGrid.length - 1)) || (j == (areaGrid[0].length - 1))) {
+        long[] free = new long[occGrid.getWordsPerRow()];
+        long[] obstacle = new long[occGrid.getWordsPerRow()];
+        for (int j = 0; j < areaGrid[0].length; j++) {
+            occGrid.getPlaneRow(OccupancyGrid.OccGridBit.FreeSpace, j, free);
+            occGrid.getPlaneRow(OccupancyGrid.OccGridBit.Obstacle, j, obstacle);
+            for (int i = 0; i < areaGrid.length; i++) {
+                if (((obstacle[i >>> 6] >>> i) & 1L) != 0 || (i == 0) || (j == 0) || (i == (areaGrid.length - 1)) || (j == (areaGrid[0].length - 1))) {
                     areaGrid[i][j] = -1;
-                } else if ((!occGrid.obstacleAt(i, j)) && (!occGrid.freeSpaceAt(i, j))) {
+                } else if (((free[i >>> 6] >>> i) & 1L) == 0) {
                     areaGrid[i][j] = SimConstants.UNEXPLORED_NODE_ID; //unexplored space
                 } else {
                     areaGrid[i][j] = 0;
@@ -907,10 +912,15 @@ public class Skeleton {
         return borderPts;
     }
 
-    public static boolean withinDistanceBySkeleton(int[][] skeleton, Point a, Point b, Point came_from, int distance, long timeStart) {
+    /**
+     * Checks whether b can be reached from a along the skeleton within distance steps.
+     *
+     * @param visitsLeft single element array holding the number of cells the search may still
+     * visit, shared by all recursive calls, see SimConstants.MAX_VISITS_DISTANCE_BY_SKELETON
+     */
+    public static boolean withinDistanceBySkeleton(int[][] skeleton, Point a, Point b, Point came_from, int distance, int[] visitsLeft) {
         // just to be 100% sure we don't freeze here
-        long curRealTime = System.currentTimeMillis();
-        if (curRealTime - timeStart > SimConstants.MAX_TIME_DISTANCE_BY_SKELETON) {
+        if (--visitsLeft[0] < 0) {
             return a.equals(b);
         }
 
@@ -935,7 +945,7 @@ public class Skeleton {
 
         Point child = new Point(a.x, a.y - 1);
         if (!child.equals(came_from) && (skeleton[child.x][child.y] == 1)) {
-            top = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, timeStart);
+            top = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, visitsLeft);
         }
 
         /*child = new Point(a.x+1, a.y-1);
@@ -943,7 +953,7 @@ public class Skeleton {
             topr = withinDistanceBySkeleton(skeleton, child, b, a, distance-1);*/
         child = new Point(a.x + 1, a.y);
         if (!child.equals(came_from) && (skeleton[child.x][child.y] == 1)) {
-            right = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, timeStart);
+            right = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, visitsLeft);
         }
 
         /*child = new Point(a.x+1, a.y+1);
@@ -951,7 +961,7 @@ public class Skeleton {
             bottomr = withinDistanceBySkeleton(skeleton, child, b, a, distance-1);*/
         child = new Point(a.x, a.y + 1);
         if (!child.equals(came_from) && (skeleton[child.x][child.y] == 1)) {
-            bottom = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, timeStart);
+            bottom = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, visitsLeft);
         }
 
         /*child = new Point(a.x-1, a.y+1);
@@ -959,7 +969,7 @@ public class Skeleton {
             bottoml = withinDistanceBySkeleton(skeleton, child, b, a, distance-1);*/
         child = new Point(a.x - 1, a.y);
         if (!child.equals(came_from) && (skeleton[child.x][child.y] == 1)) {
-            left = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, timeStart);
+            left = withinDistanceBySkeleton(skeleton, child, b, a, distance - 1, visitsLeft);
         }
 
         /*child = new Point(a.x-1, a.y-1);
@@ -1000,8 +1010,8 @@ public class Skeleton {
             addToRVlist = true;
             for (Point q : rvPts) {
                 if (p.distance(q) < DISTANCE) {
-                    long realtimeStartSkeleton = System.currentTimeMillis();
-                    if (withinDistanceBySkeleton(skeleton, p, q, p, DISTANCE, realtimeStartSkeleton)) {
+                    int[] visitsLeft = {SimConstants.MAX_VISITS_DISTANCE_BY_SKELETON};
+                    if (withinDistanceBySkeleton(skeleton, p, q, p, DISTANCE, visitsLeft)) {
                         addToRVlist = false;
                         break;
                     }
@@ -1023,9 +1033,9 @@ public class Skeleton {
             }
             for (int j = rvPts.size() - 1; j >= 0; j--) {
                 if (p.distance(rvPts.get(j)) < DISTANCE && i != j) {
-                    long realtimeStartSkeleton = System.currentTimeMillis();
+                    int[] visitsLeft = {SimConstants.MAX_VISITS_DISTANCE_BY_SKELETON};
                     if ((p.distance(rvPts.get(j)) <= 10)
-                            || (withinDistanceBySkeleton(skeleton, p, rvPts.get(j), p, DISTANCE, realtimeStartSkeleton))) {
+                            || (withinDistanceBySkeleton(skeleton, p, rvPts.get(j), p, DISTANCE, visitsLeft))) {
                         rvPts.remove(i);
                         break;
                     }
@@ -50,6 +50,7 @@ import gui.ShowSettings.ShowSettingsAgent;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.File;
+import java.io.Serializable;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -63,7 +64,9 @@ import simulator.ExplorationImage;
  *
  * @author Victor
  */
-public class TopologicalMap {
+public class TopologicalMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private OccupancyGrid occGrid;
     private int skeletonGrid[][];
@@ -82,7 +85,7 @@ public class TopologicalMap {
     private LinkedList<Point> secondKeyPointsBorder;
 
     //cached paths between nodes; first param is two points, start and finish
-    private static HashMap<Rectangle, Path> pathCache = new HashMap<Rectangle, Path>();
+    private final HashMap<Rectangle, Path> pathCache = new HashMap<Rectangle, Path>();
     private LinkedList<Point> junctionPoints;
 
     public TopologicalMap(OccupancyGrid occGrid) {
@@ -50,6 +50,7 @@ import agents.TeammateAgent;
 import config.SimConstants;
 import config.SimulatorConfig;
 import java.awt.Point;
+import java.io.Serializable;
 import path.Path;
 
 /**
@@ -58,7 +59,9 @@ import path.Path;
  *
  * @author Christian Clausen
  */
-abstract class BasicExploration {
+abstract class BasicExploration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /**
      * The agent using this ExplorationStrategy.
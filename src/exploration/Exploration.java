@@ -45,13 +45,14 @@
 package exploration;
 
 import java.awt.Point;
+import java.io.Serializable;
 
 /**
  * Interface for "Strategy Pattern"-like Exploration-strategies. Do implement this interface!
  *
  * @author Christian Clausen
  */
-public interface Exploration {
+public interface Exploration extends Serializable {
 
     /**
      * Calculates the next step the robot shouls take. This calls replan is necessary.
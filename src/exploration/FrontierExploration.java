@@ -48,6 +48,7 @@ import agents.RealAgent;
 import agents.TeammateAgent;
 import config.SimConstants;
 import config.SimulatorConfig;
+import environment.CellMask;
 import environment.ContourTracer;
 import environment.Frontier;
 import environment.OccupancyGrid;
@@ -70,6 +71,8 @@ import path.TopologicalNode;
  */
 public class FrontierExploration extends BasicExploration implements Exploration {
 
+    private static final long serialVersionUID = 1L;
+
     SimulatorConfig.frontiertype frontierExpType;
     RealAgent baseStation;
     int noReturnTimer;
@@ -422,7 +425,8 @@ public class FrontierExploration extends BasicExploration implements Exploration
         });
 
         // 1. Find all Contours
-        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(agent.getOccupancyGrid());
+        CellMask frontierCells = agent.getOccupancyGrid().getFrontierMask();
+        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(agent.getOccupancyGrid(), frontierCells);
         //System.out.println(contours.size());
         //ContourTracer.mergeContours(contours);
         //System.out.println(contours.size());
@@ -505,13 +509,13 @@ public class FrontierExploration extends BasicExploration implements Exploration
             if (!isNeedlessPlace(topoNodes, nodesWithRelay)) {
                 switch (relayType) {
                     case Random:
-                        if (!agent.comStations.isEmpty() && (Math.random() < simConfig.getComStationDropChance())) {
+                        if (!agent.comStations.isEmpty() && (agent.getRandom().nextDouble() < simConfig.getComStationDropChance())) {
                             agent.setExploreState(Agent.ExplorationState.SettingRelay);
                             return agent.stay();
                         }
 
                         TeammateAgent relay = agent.findNearComStation(agent.getSpeed());
-                        if (agent.comStations.size() < agent.getComStationLimit() && relay != null && Math.random() < simConfig.getComStationTakeChance()) {
+                        if (agent.comStations.size() < agent.getComStationLimit() && relay != null && agent.getRandom().nextDouble() < simConfig.getComStationTakeChance()) {
                             agent.setExploreState(Agent.ExplorationState.TakingRelay);
                             return relay.getLocation();
                         }
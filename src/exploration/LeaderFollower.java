@@ -57,6 +57,8 @@ import path.Path;
  */
 public class LeaderFollower extends FrontierExploration implements Exploration {
 
+    private static final long serialVersionUID = 1L;
+
     int TIME_BETWEEN_PLANS = 10;
     int frontier_com_failure_counter = 0;
     int frontier_wipe_counter = -1;
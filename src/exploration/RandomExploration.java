@@ -58,6 +58,8 @@ import java.awt.Point;
  */
 public class RandomExploration extends BasicExploration implements Exploration {
 
+    private static final long serialVersionUID = 1L;
+
     SimulatorConfig.relaytype relayType = SimulatorConfig.relaytype.None;
     TopologicalMap tmap;
 
@@ -101,12 +103,12 @@ public class RandomExploration extends BasicExploration implements Exploration {
         Point nextStep = null;
         switch (relayType) {
             case Random:
-                if (!agent.comStations.isEmpty() && (Math.random() < simConfig.getComStationDropChance())) {
+                if (!agent.comStations.isEmpty() && (agent.getRandom().nextDouble() < simConfig.getComStationDropChance())) {
                     state = Agent.ExplorationState.SettingRelay;
                 }
 
                 TeammateAgent relay = agent.findNearComStation(agent.getSpeed());
-                if (agent.comStations.size() < agent.getComStationLimit() && relay != null && Math.random() < simConfig.getComStationTakeChance()) {
+                if (agent.comStations.size() < agent.getComStationLimit() && relay != null && agent.getRandom().nextDouble() < simConfig.getComStationTakeChance()) {
                     state = Agent.ExplorationState.TakingRelay;
                     nextStep = relay.getLocation();
                 }
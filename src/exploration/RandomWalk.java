@@ -47,7 +47,6 @@ package exploration;
 import agents.RealAgent;
 import config.SimConstants;
 import java.awt.Point;
-import java.util.Random;
 
 /**
  *
@@ -55,12 +54,6 @@ import java.util.Random;
  */
 public class RandomWalk {
 
-    private static Random generator = new Random(SimConstants.RANDOM_SEED);
-
-    public static void resetSeed() {
-        generator = new Random(SimConstants.RANDOM_SEED);
-    }
-
     public static Point randomStep(RealAgent agent, double speed) {
         int maxcounter = 100;
         int ranVar;
@@ -78,7 +71,7 @@ public class RandomWalk {
             if (counter > (maxcounter / 2)) {
                 acceptableDistanceToWall = 1;
             }
-            ranVar = generator.nextInt(26);
+            ranVar = agent.getWalkRandom().nextInt(26);
 
             if (ranVar == 0) {
                 agent.setHeading(agent.getHeading() - Math.PI / 4);
@@ -115,7 +108,7 @@ public class RandomWalk {
         }
         // couldn't get a new location, try again but relax the condition about being next to a wall.
         while (!found && counter < 50) {
-            ranVar = generator.nextInt(26);
+            ranVar = agent.getWalkRandom().nextInt(26);
 
             if (ranVar == 0) {
                 agent.setHeading(agent.getHeading() - Math.PI / 4);
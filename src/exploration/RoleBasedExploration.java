@@ -66,6 +66,8 @@ import path.TopologicalNode;
  */
 public class RoleBasedExploration extends FrontierExploration {
 
+    private static final long serialVersionUID = 1L;
+
     int timeElapsed;
     IRendezvousStrategy rendezvousStrategy;
     RendezvousAgentData rvd;
@@ -269,11 +271,11 @@ public class RoleBasedExploration extends FrontierExploration {
         }
 
         if (relayType == SimulatorConfig.relaytype.Random) {
-            if (!agent.comStations.isEmpty() && (Math.random() < simConfig.getComStationDropChance())) {
+            if (!agent.comStations.isEmpty() && (agent.getRandom().nextDouble() < simConfig.getComStationDropChance())) {
                 state = Agent.ExplorationState.SettingRelay;
             }
             TeammateAgent relay = agent.findNearComStation(agent.getSpeed());
-            if (agent.comStations.size() < agent.getComStationLimit() && relay != null && Math.random() < simConfig.getComStationTakeChance()) {
+            if (agent.comStations.size() < agent.getComStationLimit() && relay != null && agent.getRandom().nextDouble() < simConfig.getComStationTakeChance()) {
                 state = Agent.ExplorationState.TakingRelay;
                 return relay.getLocation();
             }
@@ -388,13 +390,13 @@ public class RoleBasedExploration extends FrontierExploration {
             if (!isNeedlessPlace(topoNodes, nodesWithRelay)) {
                 switch (relayType) {
                     case Random:
-                        if (!agent.comStations.isEmpty() && (Math.random() < simConfig.getComStationDropChance())) {
+                        if (!agent.comStations.isEmpty() && (agent.getRandom().nextDouble() < simConfig.getComStationDropChance())) {
                             agent.setExploreState(Agent.ExplorationState.SettingRelay);
                             return agent.stay();
                         }
 
                         TeammateAgent relay = agent.findNearComStation(agent.getSpeed());
-                        if (agent.comStations.size() < agent.getComStationLimit() && relay != null && Math.random() < simConfig.getComStationTakeChance()) {
+                        if (agent.comStations.size() < agent.getComStationLimit() && relay != null && agent.getRandom().nextDouble() < simConfig.getComStationTakeChance()) {
                             agent.setExploreState(Agent.ExplorationState.TakingRelay);
                             return relay.getLocation();
                         }
@@ -58,6 +58,8 @@ import java.io.IOException;
  */
 public class RunFromLog implements Exploration {
 
+    private static final long serialVersionUID = 1L;
+
     String fileName;
     int agentNo;
 
@@ -57,6 +57,8 @@ import path.Path;
  */
 public class WallFollowExploration extends BasicExploration implements Exploration {
 
+    private static final long serialVersionUID = 1L;
+
     private OccupancyGrid grid;
     private double TURN_HEADING = Math.PI * 0.15;
     private int MEASURE_DISTANCE = 20;
@@ -44,6 +44,7 @@
 package exploration.rendezvous;
 
 import agents.RealAgent;
+import java.io.Serializable;
 import simulator.ExplorationImage;
 import java.awt.Point;
 import java.util.List;
@@ -52,7 +53,7 @@ import java.util.List;
  *
  * @author Victor
  */
-public interface IRendezvousDisplayData {
+public interface IRendezvousDisplayData extends Serializable {
 
     List<Point> getDirtyCells(ExplorationImage image, RealAgent agent);
 
@@ -46,13 +46,14 @@ package exploration.rendezvous;
 import agents.RealAgent;
 import agents.TeammateAgent;
 import java.awt.Point;
+import java.io.Serializable;
 import path.Path;
 
 /**
  *
  * @author Victor
  */
-public interface IRendezvousStrategy {
+public interface IRendezvousStrategy extends Serializable {
 
     Rendezvous calculateRendezvous(int timeElapsed, TeammateAgent mate);
 
@@ -64,6 +64,8 @@ import path.Path;
  */
 public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
 
+    private static final long serialVersionUID = 1L;
+
     private RealAgent agent;
     private final MultiPointRendezvousStrategyDisplayData displayData;
     private final MultiPointRendezvousStrategySettings settings;
@@ -59,6 +59,8 @@ import java.util.PriorityQueue;
  */
 public class MultiPointRendezvousStrategyDisplayData implements IRendezvousDisplayData {
 
+    private static final long serialVersionUID = 1L;
+
     private PriorityQueue<NearRVPoint> pointsNearFrontierReal;
     private List<NearRVPoint> generatedPoints;
     private List<Point> curDirtyCells;
@@ -43,11 +43,15 @@
  */
 package exploration.rendezvous;
 
+import java.io.Serializable;
+
 /**
  *
  * @author Victor
  */
-public class MultiPointRendezvousStrategySettings {
+public class MultiPointRendezvousStrategySettings implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     //if enabled, agents will try to move to area that they estimate will have better signal strength with the
     //other agent rendezvous position, while they are waiting for that agent
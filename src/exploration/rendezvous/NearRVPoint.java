@@ -53,6 +53,8 @@ import java.util.LinkedList;
  */
 public class NearRVPoint extends Point implements Comparable<NearRVPoint> {
 
+    private static final long serialVersionUID = 1L;
+
     public double distanceToFrontier;
     public double distanceToParent = java.lang.Double.MAX_VALUE;
     public double utility;
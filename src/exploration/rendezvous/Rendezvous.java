@@ -45,6 +45,7 @@ package exploration.rendezvous;
 
 import config.SimConstants;
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
@@ -53,7 +54,9 @@ import java.util.Objects;
  *
  * @author Victor
  */
-public class Rendezvous {
+public class Rendezvous implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private Point childLocation; // where the child of the two agents meeting up should go
     private Point parentLocation; //where the parent of the two agents meeting up should go
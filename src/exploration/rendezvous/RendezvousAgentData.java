@@ -45,12 +45,15 @@ package exploration.rendezvous;
 
 import agents.Agent;
 import config.SimConstants;
+import java.io.Serializable;
 
 /**
  *
  * @author Victor
  */
-public class RendezvousAgentData {
+public class RendezvousAgentData implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private int timeSinceLastRVCalc;  // keeps track of time since last rendezvous calculation
     private Rendezvous parentRendezvous;  // location of parent rendezvous
@@ -57,6 +57,8 @@ import path.Path;
  */
 class SimpleRendezvousStrategy implements IRendezvousStrategy {
 
+    private static final long serialVersionUID = 1L;
+
     private final RealAgent agent;
     private final SinglePointRendezvousStrategyDisplayData displayData;
     private final SimpleRendezvousStrategySettings settings;
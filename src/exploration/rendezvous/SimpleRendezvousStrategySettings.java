@@ -50,6 +50,8 @@ package exploration.rendezvous;
  */
 class SimpleRendezvousStrategySettings extends SinglePointRendezvousStrategySettings {
 
+    private static final long serialVersionUID = 1L;
+
     public SimpleRendezvousStrategySettings() {
     }
 
@@ -64,6 +64,8 @@ import path.Path;
  */
 public class SinglePointRendezvousStrategy implements IRendezvousStrategy {
 
+    private static final long serialVersionUID = 1L;
+
     private RealAgent agent;
     private SinglePointRendezvousStrategyDisplayData displayData;
 
@@ -56,6 +56,8 @@ import java.util.List;
  */
 public class SinglePointRendezvousStrategyDisplayData implements IRendezvousDisplayData {
 
+    private static final long serialVersionUID = 1L;
+
     private LinkedList<Point> skeleton;
     private LinkedList<Point> rvPoints;
 
@@ -43,11 +43,15 @@
  */
 package exploration.rendezvous;
 
+import java.io.Serializable;
+
 /**
  *
  * @author Victor
  */
-public class SinglePointRendezvousStrategySettings {
+public class SinglePointRendezvousStrategySettings implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     //If false, new RV point is simply the point where explorer turns back to head to RV.
     //Otherwise, we try to pick a better spot (near junctions, in corridors, etc.
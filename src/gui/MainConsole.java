@@ -49,25 +49,26 @@ import agents.RealAgent;
 import config.RobotTeamConfig;
 import config.SimConstants;
 import config.SimulatorConfig;
-import exploration.RandomWalk;
 import java.io.File;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import simulator.ExplorationImage;
-import simulator.SimulationFramework;
+import simulator.SimulationEngine;
+import simulator.SimulationObserver;
 
 /**
  * Run simulation without GUI. Main-method, startable
  *
  * @author Christian Clausen
  */
-public class MainConsole extends MainGUI implements Runnable {
+public class MainConsole implements Runnable, SimulationObserver {
 
     private static final Logger LOGGER = Logger.getLogger(MainConsole.class.getName());
     private boolean batch;
     private String threadName = "unnamed";
     private ExplorationLogger exploreLog;
-    private boolean loaded = false;
+    private RobotTeamConfig robotTeamConfig;
+    private SimulatorConfig simConfig;
+    private SimulationEngine engine;
 
     /**
      * Start simulation without GUI
@@ -79,8 +80,8 @@ public class MainConsole extends MainGUI implements Runnable {
         mainConsole.load();
         try {
             mainConsole.start();
-        } catch (InterruptedException ex) {
-            LOGGER.log(Level.SEVERE, null, ex);
+        } catch (Exception e) {
+            System.err.println("Stop Execution of this Non-GUI run because:\n" + e.toString());
         }
     }
 
@@ -95,8 +96,6 @@ public class MainConsole extends MainGUI implements Runnable {
         this.threadName = name;
         robotTeamConfig = new RobotTeamConfig();
         simConfig = new SimulatorConfig();
-        explorationImage = new ExplorationImage(simConfig.getEnvironment());
-        RandomWalk.resetSeed();
         new File(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName).mkdir();
     }
 
@@ -104,28 +103,31 @@ public class MainConsole extends MainGUI implements Runnable {
      * Call after creating! Needs to be called to load the simulation in a save state.
      */
     public void load() {
-        explorationImage.redrawEnvAndAgents(this, robotTeamConfig, simConfig);
-        simulation = new SimulationFramework(this, robotTeamConfig, simConfig, explorationImage);
-        loaded = true;
+        engine = new SimulationEngine(robotTeamConfig, simConfig, this);
     }
 
     /**
-     * Starts the simulation
+     * Runs the simulation on the calling thread and returns when it is complete or stopped.
+     * Exceptions of the simulation are passed on to the caller.
      *
-     * @throws InterruptedException if called before load()
+     * @throws InterruptedException if interrupted
+     * @throws IllegalStateException if called before load()
      */
     public void start() throws InterruptedException {
-        if (loaded) {
-            try {
-                simulation.start();
-            } catch (Exception e) {
-                System.err.println("Stop Execution of this Non-GUI run because:\n" + e.toString());
-            }
+        if (engine != null) {
+            engine.run();
         } else {
             throw new IllegalStateException("Need to call load() first!");
         }
     }
 
+    /**
+     * @return the engine running this simulation, null before load()
+     */
+    public SimulationEngine getEngine() {
+        return engine;
+    }
+
     /**
      * Loads a specific simulation-config. Otherwise the defaultconfig is used
      *
@@ -136,7 +138,16 @@ public class MainConsole extends MainGUI implements Runnable {
     }
 
     /**
-     * Gets called by threads, DO NOT CALL YOURSELF!
+     * Loads a specific robot team. Otherwise the default team is used
+     *
+     * @param robotTeamConfig specific robot team
+     */
+    public void setRobotTeamConfig(RobotTeamConfig robotTeamConfig) {
+        this.robotTeamConfig = robotTeamConfig;
+    }
+
+    /**
+     * Gets called by the simulation, DO NOT CALL YOURSELF!
      *
      * @param agent
      * @param timeElapsed
@@ -145,7 +156,7 @@ public class MainConsole extends MainGUI implements Runnable {
      */
     @Override
     public void runComplete(RealAgent[] agent, int timeElapsed, double pctAreaKnownTeam, int avgCycleTime) {
-        simulation.logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
+        engine.getSimulation().logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
 
         System.out.format("%s\n"
                 + "\tCycle: %d\n"
@@ -156,24 +167,11 @@ public class MainConsole extends MainGUI implements Runnable {
         this.exploreLog.writeLog(timeElapsed);
         if (!batch) {
             System.exit(0);
-        } else {
-            this.dispose();
-            synchronized (this) {
-                this.notify();
-            }
         }
     }
 
     /**
-     * Overrides the inherited updateRobotConfig() which would update Robot-data in GUI. DO NOT CALL
-     * YOURSELF
-     */
-    @Override
-    public void updateRobotConfig() {
-    }
-
-    /**
-     * Gets called by threads, DO NOT CALL YOURSELF!
+     * Gets called by the simulation, DO NOT CALL YOURSELF!
      *
      * @param agent
      * @param timeElapsed
@@ -181,7 +179,7 @@ public class MainConsole extends MainGUI implements Runnable {
      * @param avgCycleTime
      */
     @Override
-    public void updateFromData(RealAgent agent[],
+    public void cycleComplete(RealAgent agent[],
             int timeElapsed,
             double pctAreaKnown,
             int avgCycleTime) {
@@ -194,9 +192,9 @@ public class MainConsole extends MainGUI implements Runnable {
                 + "AreaKnown: {2}%\n"
                 + "AvgTime/Cycle: {3}",
                 new Object[]{this.threadName, timeElapsed, Math.round(pctAreaKnown), (int) avgCycleTime});
-        //simulation.logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
+        //engine.getSimulation().logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
         if ((timeElapsed % 50) == 0) {
-            simulation.logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
+            engine.getSimulation().logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + this.threadName + File.separatorChar);
             System.out.format("Name: %s"
                     + "\nCycle: %d\n"
                     + "AreaKnown: %d%%\n"
@@ -218,13 +216,8 @@ public class MainConsole extends MainGUI implements Runnable {
             start();
         } catch (InterruptedException ex) {
             Logger.getLogger(MainConsole.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        synchronized (this) {
-            try {
-                wait();
-            } catch (InterruptedException ex) {
-                Logger.getLogger(MainConsole.class.getName()).log(Level.SEVERE, null, ex);
-            }
+        } catch (RuntimeException e) {
+            System.err.println("Stop Execution of this Non-GUI run because:\n" + e.toString());
         }
     }
 
@@ -51,6 +51,7 @@ import environment.TopologicalMap;
 import gui.ShowSettings.ShowSettingsAgent;
 import java.awt.Point;
 import java.io.File;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -61,7 +62,9 @@ import simulator.ExplorationImage;
  *
  * @author julh
  */
-public class Path {
+public class Path implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public boolean found;
     private Point startPoint;
@@ -294,7 +297,7 @@ public class Path {
         pathPoints = new LinkedList<Point>();
         reversePathPoints = new LinkedList<Point>();
 
-        long realtimeStart = System.currentTimeMillis();
+        int expansions = 0;
         if ((goalPoint.x == 0) && (goalPoint.y == 0)) //something went really wrong and it takes forever to calculate/fail
         {
             return false;
@@ -318,14 +321,13 @@ public class Path {
         boolean limit_hit = false;
 
         while (!openSet.isEmpty()) {
-            long time_elapsed = System.currentTimeMillis() - realtimeStart;
-            int maxTime = SimConstants.MAX_PATH_SEARCH_TIME;
+            int maxExpansions = SimConstants.MAX_PATH_SEARCH_EXPANSIONS;
             if (exact) {
-                maxTime = 5 * SimConstants.MAX_PATH_SEARCH_TIME;
+                maxExpansions = SimConstants.MAX_EXACT_PATH_SEARCH_EXPANSIONS;
             }
-            if ((time_elapsed > maxTime) /*&& (limit)*/) {
+            if ((++expansions > maxExpansions) /*&& (limit)*/) {
                 System.err.println("Took too long (A*), startpoint is " + startPoint.toString()
-                        + ", endpoint is " + goalPoint.toString() + "time elapsed: " + time_elapsed + "ms.");
+                        + ", endpoint is " + goalPoint.toString() + ", expanded " + maxExpansions + " nodes.");
 
                 outputPathError();
                 limit_hit = true;
@@ -389,7 +391,7 @@ public class Path {
             length = 0;
             return;
         }*/
-        long realtimeStart = System.currentTimeMillis();
+        int expansions = 0;
         if ((goalPoint.x == 0) && (goalPoint.y == 0)) //something went really wrong and it takes forever to calculate/fail
         {
             System.err.print("Goal is (0, 0), something went wrong, aborting path planning...");
@@ -414,9 +416,8 @@ public class Path {
         boolean limit_hit = false;
 
         while (!openSet.isEmpty()) {
-            long time_elapsed = System.currentTimeMillis() - realtimeStart;
-            if ((time_elapsed > SimConstants.MAX_PATH_SEARCH_TIME) && (limit)) {
-                System.err.println("Took too long, time elapsed: " + time_elapsed + "ms.");
+            if ((++expansions > SimConstants.MAX_PATH_SEARCH_EXPANSIONS) && (limit)) {
+                System.err.println("Took too long, expanded " + SimConstants.MAX_PATH_SEARCH_EXPANSIONS + " nodes.");
                 limit_hit = true;
                 break;
             }
@@ -45,6 +45,7 @@ package path;
 
 import config.SimConstants;
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 
@@ -52,7 +53,9 @@ import java.util.LinkedList;
  *
  * @author Victor
  */
-public class TopologicalNode {
+public class TopologicalNode implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private int ID;
     private Point position;
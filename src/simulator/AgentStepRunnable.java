@@ -59,26 +59,48 @@ public class AgentStepRunnable implements Runnable {
     private SimulatorConfig simConfig;
     private int timeElapsed;
     private Environment env;
-    private SimulationFramework simFramework;
+    private RayCaster rayCaster;
+    private double distanceLeft;
+    private Point pendingStep; // step the agent is sensing for, see advance()
 
     AgentStepRunnable(RealAgent agent, SimulatorConfig simConfig, int timeElapsed,
-            Environment env, SimulationFramework simFramework) {
+            Environment env) {
         this.agent = agent;
         this.simConfig = simConfig;
         this.timeElapsed = timeElapsed;
         this.env = env;
-        this.simFramework = simFramework;
+        this.rayCaster = new RayCaster(env);
+        this.distanceLeft = agent.getSpeed();
     }
 
     @Override
     public void run() {
-        Point nextStep;
-        double[] sensorData;
-        double distance_left = agent.getSpeed();
+        while (advance()) {
+            rayCaster.cast(0, RayCaster.NUM_RAYS);
+        }
+    }
+
+    /**
+     * Moves the agent along its path until it has to sense, or until it has used up its speed
+     * for this cycle. When it stopped to sense, the rays of getRayCaster() have to be cast before
+     * the next call, which hands their ranges to the agent and moves on.
+     *
+     * @return true if the agent stopped to sense, false if its step of this cycle is done
+     */
+    boolean advance() {
+        if (pendingStep != null) {
+            agent.writeStep(pendingStep, rayCaster.getRanges(), true);
+            pendingStep = null;
+            if (!continueOnPath()) {
+                finishStep();
+                return false;
+            }
+        }
 
+        Point nextStep;
         //Continue along the path,
         //until we have exhausted agent 'speed' per cycle or run out of path
-        while (distance_left > 0) {
+        while (distanceLeft > 0) {
             //Get next step
             try {
                 nextStep = agent.takeStep(timeElapsed);
@@ -91,9 +113,9 @@ public class AgentStepRunnable implements Runnable {
             if (nextStep == null) {
                 nextStep = agent.getLocation();
                 agent.setEnvError(true);
-                distance_left = 0;
+                distanceLeft = 0;
                 System.err.println(agent + " !!! setting envError because nextStep is null, "
-                        + "distance_left is " + distance_left);
+                        + "distance_left is " + distanceLeft);
             }
 
             //Check to make sure step is legal
@@ -102,26 +124,32 @@ public class AgentStepRunnable implements Runnable {
                 double dist = agent.getLocation().distance(nextStep);
                 //If we don't have enough 'speed'
                 // left to reach nextPoint, go as far as we can and keep nextPoint in the path
-                if (dist > distance_left) {
+                if (dist > distanceLeft) {
                     //Could not do last step, set this back on step
                     if (agent.getPath() != null) {
                         agent.getPath().resetStep();
                     }
-                    double ratio = distance_left / dist;
+                    double ratio = distanceLeft / dist;
                     nextStep.x = agent.getX() + (int) Math.round((nextStep.x - agent.getX()) * ratio);
                     nextStep.y = agent.getY() + (int) Math.round((nextStep.y - agent.getY()) * ratio);
                     if (!env.legalMove(agent.getLocation(), nextStep, agent.ability)) {
                         nextStep.x = agent.getX();
                         nextStep.y = agent.getY();
                     }
-                    distance_left = 0;
+                    distanceLeft = 0;
                 } else {
-                    distance_left = distance_left - dist;
+                    distanceLeft = distanceLeft - dist;
                 }
                 // comment below out to process sensor data once at the end of each time step, to speed the simulation up
                 // if agents cover too much distance in each timestep, we may need to process it more frequently
-                sensorData = simFramework.findSensorData(agent, nextStep);
-                agent.writeStep(nextStep, sensorData, true);
+                if (simConfig.isReuseIdleResults() && agent.isScanUnchanged(nextStep)) {
+                    // standing still on an unchanged map, sensing again would give the same result
+                    agent.writeStep(nextStep, null, false);
+                } else {
+                    rayCaster.aim(agent, nextStep);
+                    pendingStep = nextStep;
+                    return true;
+                }
             } else {
                 System.err.println(agent + " at cycle " + timeElapsed + ": setting envError because direct line not possible from ("
                         + (int) agent.getLocation().getX() + "," + (int) agent.getLocation().getY() + ") to (" + nextStep.x + "," + nextStep.y + "), distance: " + nextStep.distance(agent.getLocation()));
@@ -151,31 +179,51 @@ public class AgentStepRunnable implements Runnable {
                 }
                 agent.setEnvError(true);
             }
-            agent.flush();
-
-            //Conditions for breaking even if we have 'speed' left
-            boolean canContinueOnPath = (agent.getPath() != null) && !agent.getPath().isFinished() && (agent.getPath().getPoints() != null)
-                    && (agent.getPath().getPoints().size() > 0) && (!agent.getEnvError());
-            if (!canContinueOnPath) {
+            if (!continueOnPath()) {
                 break;
             }
+        }
+        finishStep();
+        return false;
+    }
 
-            /*if ((agent.getState() != Agent.AgentState.Explore)
-                    && (agent.getState() != Agent.AgentState.GoToChild)
-                    && (agent.getState() != Agent.AgentState.ReturnToBaseStation)
-                    && (agent.getState() != Agent.AgentState.Initial)
-                    && (agent.getState() != Agent.AgentState.AKTIVE)) {
-                break;
-            }*/
-            if (simConfig.getExpAlgorithm() == SimulatorConfig.exptype.RunFromLog) {
-                break;
-            }
-            if (agent.isStepFinished()) {
-                agent.setStepFinished(false);
-                break;
-            }
+    RayCaster getRayCaster() {
+        return rayCaster;
+    }
+
+    /**
+     * Flushes the agent after a step.
+     *
+     * @return true if it can go on along its path in this cycle
+     */
+    private boolean continueOnPath() {
+        agent.flush();
+
+        //Conditions for breaking even if we have 'speed' left
+        boolean canContinueOnPath = (agent.getPath() != null) && !agent.getPath().isFinished() && (agent.getPath().getPoints() != null)
+                && (agent.getPath().getPoints().size() > 0) && (!agent.getEnvError());
+        if (!canContinueOnPath) {
+            return false;
+        }
+
+        /*if ((agent.getState() != Agent.AgentState.Explore)
+                && (agent.getState() != Agent.AgentState.GoToChild)
+                && (agent.getState() != Agent.AgentState.ReturnToBaseStation)
+                && (agent.getState() != Agent.AgentState.Initial)
+                && (agent.getState() != Agent.AgentState.AKTIVE)) {
+            break;
+        }*/
+        if (simConfig.getExpAlgorithm() == SimulatorConfig.exptype.RunFromLog) {
+            return false;
+        }
+        if (agent.isStepFinished()) {
+            agent.setStepFinished(false);
+            return false;
         }
+        return true;
+    }
 
+    private void finishStep() {
         /*if (simConfig.getExpAlgorithm() != SimulatorConfig.exptype.RunFromLog)
             agent.updateTrueAreaKnown(env);*/
         //benchmark
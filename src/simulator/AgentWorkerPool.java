@@ -0,0 +1,166 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of long-lived worker threads that step the agents once per simulation cycle. Workers
+ * meet the simulation thread at a start and an end barrier each cycle and pull agent tasks from a
+ * shared counter, so no threads are created or torn down while the simulation is running.
+ *
+ * @author Christian Clausen
+ */
+class AgentWorkerPool {
+
+    private final Thread[] workers;
+    private final CyclicBarrier cycleStart;
+    private final CyclicBarrier cycleEnd;
+    private final AtomicInteger nextTask = new AtomicInteger();
+
+    private volatile List<? extends Runnable> tasks;
+    private volatile Throwable[] failures;
+    private volatile boolean shutdown;
+
+    /**
+     * @param parallelism number of worker threads; with 1 the tasks are run on the calling thread
+     */
+    AgentWorkerPool(int parallelism) {
+        int numWorkers = (parallelism > 1) ? parallelism : 0;
+        workers = new Thread[numWorkers];
+        cycleStart = new CyclicBarrier(numWorkers + 1);
+        cycleEnd = new CyclicBarrier(numWorkers + 1);
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Thread(this::workerLoop, "AgentWorker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    int getParallelism() {
+        return Math.max(1, workers.length);
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Runs all tasks and returns once every one of them has finished. A task that throws does not
+     * affect the others; its exception is returned at the task's index, all other entries are null.
+     * If the calling thread is interrupted, the remaining tasks are skipped and the pool shut down.
+     *
+     * @param cycleTasks the tasks of this cycle
+     * @return the exception thrown by each task, or null if it completed normally
+     */
+    Throwable[] runCycle(List<? extends Runnable> cycleTasks) {
+        if (shutdown) {
+            throw new IllegalStateException("AgentWorkerPool has been shut down");
+        }
+        tasks = cycleTasks;
+        failures = new Throwable[cycleTasks.size()];
+        nextTask.set(0);
+
+        if (workers.length == 0) {
+            drainTasks();
+            if (Thread.currentThread().isInterrupted()) {
+                shutdown();
+                throw new IllegalStateException("Agent step cycle was interrupted");
+            }
+        } else {
+            try {
+                cycleStart.await();
+                cycleEnd.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                shutdown();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Agent step cycle was interrupted", e);
+            }
+        }
+
+        Throwable[] result = failures;
+        tasks = null;
+        failures = null;
+        return result;
+    }
+
+    /**
+     * Stops all worker threads. Must not be called while a cycle is in progress on another thread.
+     */
+    void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void workerLoop() {
+        while (!shutdown) {
+            try {
+                cycleStart.await();
+                drainTasks();
+                cycleEnd.await();
+            } catch (InterruptedException | BrokenBarrierException e) {
+                return;
+            }
+        }
+    }
+
+    private void drainTasks() {
+        List<? extends Runnable> current = tasks;
+        Throwable[] currentFailures = failures;
+        int i;
+        while (!Thread.currentThread().isInterrupted()
+                && (i = nextTask.getAndIncrement()) < current.size()) {
+            try {
+                current.get(i).run();
+            } catch (Throwable t) {
+                currentFailures[i] = t;
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wall clock time of every phase of SimulationFramework.simulationCycle() and of the step of every
+ * agent, recorded cycle by cycle. Enabled by SimConstants.PROFILING.
+ *
+ * @author Christian Clausen
+ */
+public class CycleProfiler {
+
+    public static enum Phase {
+        DETECT_COMMUNICATION, AGENT_STEPS, FLUSH_COMMS, SIMULATE_COMMUNICATION,
+        UPDATE_AGENT_KNOWLEDGE, UPDATE_GLOBAL_DATA, UPDATE_GUI, LOGGING, TOTAL
+    }
+
+    /**
+     * Marks a phase or an agent that did not run in a cycle.
+     */
+    private static final long NOT_RUN = -1;
+
+    private final String[] agentNames;
+    private final List<Integer> cycles = new ArrayList<>();
+    private final List<long[]> phaseTimes = new ArrayList<>();
+    private final List<long[]> agentTimes = new ArrayList<>();
+    private long[] currentPhases;
+    private long[] currentAgents;
+
+    /**
+     * @param agentNames unique names of the agents, in the order of the agent array of the simulation
+     */
+    public CycleProfiler(String[] agentNames) {
+        this.agentNames = agentNames.clone();
+        newCycle();
+    }
+
+    private void newCycle() {
+        currentPhases = new long[Phase.values().length];
+        currentAgents = new long[agentNames.length];
+        Arrays.fill(currentPhases, NOT_RUN);
+        Arrays.fill(currentAgents, NOT_RUN);
+    }
+
+    /**
+     * @param phase the phase
+     * @param nanos time the phase took in the current cycle, in ns
+     */
+    public void add(Phase phase, long nanos) {
+        if (currentPhases[phase.ordinal()] == NOT_RUN) {
+            currentPhases[phase.ordinal()] = nanos;
+        } else {
+            currentPhases[phase.ordinal()] += nanos;
+        }
+    }
+
+    /**
+     * @param agentIndex index of the agent in the agent array of the simulation
+     * @param nanos time the step of the agent took in the current cycle, in ns
+     */
+    public void addAgentStep(int agentIndex, long nanos) {
+        currentAgents[agentIndex] = nanos;
+    }
+
+    /**
+     * Stores the times of the current cycle and starts the next one.
+     *
+     * @param cycle number of the cycle that ended
+     */
+    public void endCycle(int cycle) {
+        cycles.add(cycle);
+        phaseTimes.add(currentPhases);
+        agentTimes.add(currentAgents);
+        newCycle();
+    }
+
+    public int getCycleCount() {
+        return cycles.size();
+    }
+
+    /**
+     * @param phase the phase
+     * @return min, mean, p50, p99 and max of the phase in ms, over the cycles it ran in; null if it
+     * never ran
+     */
+    public double[] getStatistics(Phase phase) {
+        return statistics(phaseTimes, phase.ordinal());
+    }
+
+    /**
+     * @param agentIndex index of the agent in the agent array of the simulation
+     * @return min, mean, p50, p99 and max of the steps of the agent in ms; null if it never stepped
+     */
+    public double[] getAgentStatistics(int agentIndex) {
+        return statistics(agentTimes, agentIndex);
+    }
+
+    private static double[] statistics(List<long[]> rows, int column) {
+        long[] samples = new long[rows.size()];
+        int count = 0;
+        long sum = 0;
+        for (long[] row : rows) {
+            if (row[column] != NOT_RUN) {
+                samples[count++] = row[column];
+                sum += row[column];
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        Arrays.sort(samples, 0, count);
+        return new double[]{
+            samples[0] / 1e6,
+            sum / 1e6 / count,
+            samples[percentileIndex(count, 50)] / 1e6,
+            samples[percentileIndex(count, 99)] / 1e6,
+            samples[count - 1] / 1e6};
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private static int percentileIndex(int count, int percentile) {
+        return Math.max(0, (int) Math.ceil(percentile / 100.0 * count) - 1);
+    }
+
+    /**
+     * @return table of min, mean, p50, p99 and max per phase and agent, in ms
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "Cycle profile over %d cycles (ms)%n", cycles.size()));
+        report.append(String.format(Locale.US, "%-24s %10s %10s %10s %10s %10s%n",
+                "phase", "min", "mean", "p50", "p99", "max"));
+        for (Phase phase : Phase.values()) {
+            appendLine(report, phase.toString(), getStatistics(phase));
+        }
+        for (int i = 0; i < agentNames.length; i++) {
+            appendLine(report, "  step " + agentNames[i], getAgentStatistics(i));
+        }
+        return report.toString();
+    }
+
+    private static void appendLine(StringBuilder report, String name, double[] stats) {
+        if (stats != null) {
+            report.append(String.format(Locale.US, "%-24s %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    name, stats[0], stats[1], stats[2], stats[3], stats[4]));
+        }
+    }
+
+    /**
+     * Writes one line per cycle with the time of every phase and agent step in microseconds. Phases
+     * and agents that did not run in a cycle are left empty.
+     *
+     * @param fileName the CSV file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(String fileName) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(fileName))) {
+            StringBuilder header = new StringBuilder("cycle");
+            for (Phase phase : Phase.values()) {
+                header.append(',').append(phase.toString().toLowerCase(Locale.US)).append("_us");
+            }
+            for (String name : agentNames) {
+                header.append(",step_").append(name).append("_us");
+            }
+            out.println(header);
+            for (int i = 0; i < cycles.size(); i++) {
+                StringBuilder line = new StringBuilder().append(cycles.get(i));
+                appendMicros(line, phaseTimes.get(i));
+                appendMicros(line, agentTimes.get(i));
+                out.println(line);
+            }
+        }
+    }
+
+    private static void appendMicros(StringBuilder line, long[] nanos) {
+        for (long value : nanos) {
+            line.append(',');
+            if (value != NOT_RUN) {
+                line.append(value / 1000);
+            }
+        }
+    }
+}
@@ -53,6 +53,7 @@ import config.SimulatorConfig;
 import environment.Environment;
 import environment.Frontier;
 import environment.OccupancyGrid;
+import environment.RowSpans;
 import environment.TopologicalMap;
 import gui.MainGUI;
 import gui.ShowSettings.ShowSettings;
@@ -101,7 +102,7 @@ public class ExplorationImage {
     Graphics2D g2D;
 
     private BufferedImage image;
-    HashSet gridHashBuffer;
+    HashSet<OccupancyGrid> gridHashBuffer;
     boolean forceFullUpdate = false;
 
     public ExplorationImage(Environment env) {
@@ -234,6 +235,12 @@ public class ExplorationImage {
         LinkedList<Point> allDirt = new LinkedList<>();
         for (RealAgent agent : agents) {
             allDirt = mergeLists(allDirt, agent.getDirtyCells());
+            RowSpans spans = agent.getDirtySpans();
+            for (int s = 0; s < spans.size(); s++) {
+                for (int x = spans.getFromX(s); x <= spans.getToX(s); x++) {
+                    allDirt.add(new Point(x, spans.getY(s)));
+                }
+            }
         }
 
         allDirt = mergeLists(allDirt, errorDirt);
@@ -382,13 +389,13 @@ public class ExplorationImage {
             Environment env, RealAgent[] agents, Polygon[] agentRange, boolean dirtOnly) {
         setG2D();
 
-        gridHashBuffer = new HashSet();
+        gridHashBuffer = new HashSet<>();
         for (int i = 0; i <= agents.length - 1; i++) {
             //setting base-info on base-settings, do this just once instead of every pixel on every agent :-/
             if (agents[i].getRole() == RobotConfig.roletype.BaseStation) {
                 agentSettings[i].baseStation = true;
                 agentSettings[i].hasMapInfo = true;
-            } else if (gridHashBuffer.add(agents[i].getOccupancyGrid().hashCode())) {
+            } else if (gridHashBuffer.add(agents[i].getOccupancyGrid())) {
                 //is new
                 agentSettings[i].hasMapInfo = true;
             }
@@ -0,0 +1,173 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import agents.RealAgent;
+import environment.Environment;
+import java.awt.Point;
+
+/**
+ * Simulates the laser range finder of the agents: 181 rays, one per degree, across the half plane
+ * in front of the agent. A ray samples the cell at every whole distance m along it, at
+ * (int) (m * cos) and (int) (m * sin) of its angle, and stops at the first obstacle or barrier.
+ *
+ * The sines and cosines are worked out once per heading rather than once per sample, and the
+ * ranges are written to the same array on every scan. A scan is aimed first and its rays can then
+ * be cast in parts, also at the same time from several threads, see SimulationFramework.
+ *
+ * @author Christian Clausen
+ */
+public class RayCaster {
+
+    public static final int NUM_RAYS = 181;
+
+    private final Environment env;
+    private final double[] ranges = new double[NUM_RAYS];
+    private final double[] cos = new double[NUM_RAYS];
+    private final double[] sin = new double[NUM_RAYS];
+    private double tableHeading = Double.NaN; // heading cos and sin are for
+    private int sensorX;
+    private int sensorY;
+    private int range;
+
+    public RayCaster(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Senses the environment from the location the agent is about to step to, see aim().
+     *
+     * @param agent the agent sensing something
+     * @param nextLoc the location the given agent will be at the moment of sensing
+     * @return range of each ray; valid until the next scan
+     */
+    public double[] scan(RealAgent agent, Point nextLoc) {
+        aim(agent, nextLoc);
+        cast(0, NUM_RAYS);
+        return ranges;
+    }
+
+    /**
+     * Sets up a scan from the location the agent is about to step to, facing in the direction of
+     * the step, or in its current heading if it stays where it is.
+     *
+     * @param agent the agent sensing something
+     * @param nextLoc the location the given agent will be at the moment of sensing
+     */
+    public void aim(RealAgent agent, Point nextLoc) {
+        double heading;
+        if (agent.getLocation().equals(nextLoc)) {
+            heading = agent.getHeading();
+        } else {
+            heading = Math.atan2(nextLoc.y - agent.getY(), nextLoc.x - agent.getX());
+        }
+        aim(nextLoc.x, nextLoc.y, heading, agent.getSenseRange());
+    }
+
+    /**
+     * @param x column of the sensor
+     * @param y row of the sensor
+     * @param heading direction of the middle ray
+     * @param range maximum range
+     */
+    public void aim(int x, int y, double heading, int range) {
+        if (heading != tableHeading) {
+            for (int i = 0; i < NUM_RAYS; i++) {
+                double angle = heading - Math.PI / 2 + Math.PI / 180 * i;
+                cos[i] = Math.cos(angle);
+                sin[i] = Math.sin(angle);
+            }
+            tableHeading = heading;
+        }
+        sensorX = x;
+        sensorY = y;
+        this.range = range;
+    }
+
+    /**
+     * Casts the rays fromRay to toRay - 1 of the scan aimed last.
+     */
+    public void cast(int fromRay, int toRay) {
+        // cells above hills, i.e. obstacles and barriers
+        long[] stops = env.getBlockedCells(Environment.Status.hill.ordinal());
+        int columns = env.getColumns();
+        int rows = env.getRows();
+        int x = sensorX;
+        int y = sensorY;
+
+        for (int i = fromRay; i < toRay; i++) {
+            int prevX = x;
+            int prevY = y;
+            ranges[i] = 0;
+            for (int m = 1; m <= range; m++) {
+                int rayX = x + (int) (m * cos[i]);
+                int rayY = y + (int) (m * sin[i]);
+                if (rayX < 0 || rayX >= columns || rayY < 0 || rayY >= rows) {
+                    ranges[i] = distance(x, y, prevX, prevY);
+                    break;
+                }
+                int cell = rayY * columns + rayX;
+                if ((stops[cell >>> 6] & (1L << cell)) != 0 || m == range) {
+                    ranges[i] = distance(x, y, rayX, rayY);
+                    break;
+                }
+                prevX = rayX;
+                prevY = rayY;
+            }
+        }
+    }
+
+    /**
+     * @return range of each ray of the last scan; the array is reused by the next one
+     */
+    public double[] getRanges() {
+        return ranges;
+    }
+
+    private static double distance(int fromX, int fromY, int toX, int toY) {
+        double dx = toX - fromX;
+        double dy = toY - fromY;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import agents.RealAgent;
+import config.RobotTeamConfig;
+import config.SimulatorConfig;
+import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Complete state of a simulation between two cycles: the agents with everything they know, the
+ * configuration, the random generators and the counters of the SimulationFramework. A run can be
+ * resumed from it, or several runs can be forked from one warm-up, see
+ * SimulatorConfig.setResumeFilename().
+ *
+ * Checkpoints are written with Java serialization and compressed with gzip.
+ *
+ * @author Christian Clausen
+ */
+public class SimulationCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final int timeElapsed;
+    final int jointAreaKnown;
+    final double pctAreaKnownTeam;
+    final int totalArea;
+    final double avgComStationKnowledge;
+    final double avgAgentKnowledge;
+    final double avgTimeLastCommand;
+    final double totalDistanceTraveled;
+    final int numSwaps;
+    final Random random;
+
+    final int[][] directCommTable;
+    final int[][] multihopCommTable;
+    final Point[] commDetectionLocations;
+
+    final RealAgent[] agents;
+    final SimulatorConfig simConfig;
+    final RobotTeamConfig robotTeamConfig;
+
+    /**
+     * Captures the state of the given simulation. The state is shared, not copied, so the
+     * checkpoint has to be serialized before the next cycle runs, see toBytes().
+     *
+     * @param sim simulation between two cycles
+     */
+    SimulationCheckpoint(SimulationFramework sim) {
+        timeElapsed = sim.timeElapsed;
+        jointAreaKnown = sim.jointAreaKnown;
+        pctAreaKnownTeam = sim.pctAreaKnownTeam;
+        totalArea = sim.totalArea;
+        avgComStationKnowledge = sim.avgComStationKnowledge;
+        avgAgentKnowledge = sim.avgAgentKnowledge;
+        avgTimeLastCommand = sim.avgTimeLastCommand;
+        totalDistanceTraveled = sim.totalDistanceTraveled;
+        numSwaps = sim.numSwaps;
+        random = sim.random;
+        directCommTable = sim.directCommTable;
+        multihopCommTable = sim.multihopCommTable;
+        commDetectionLocations = sim.commDetectionLocations;
+        agents = sim.agent;
+        simConfig = sim.simConfig;
+        robotTeamConfig = sim.robotTeamConfig;
+    }
+
+    public int getTimeElapsed() {
+        return timeElapsed;
+    }
+
+    /**
+     * Serializes the checkpoint without compressing it, which is the part that has to happen on the
+     * simulation thread. The bytes can then be compressed and written anywhere, see write().
+     *
+     * @return the serialized checkpoint
+     * @throws IOException if part of the state cannot be serialized
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Compresses a serialized checkpoint into the given file. The file is written under a temporary
+     * name first and then renamed, so an interrupted write never leaves a broken checkpoint behind.
+     *
+     * @param serialized the result of toBytes()
+     * @param fileName file to write
+     * @throws IOException if the file cannot be written
+     */
+    static void write(byte[] serialized, String fileName) throws IOException {
+        File file = new File(fileName);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File tmp = new File(fileName + ".tmp");
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(serialized);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the checkpoint to a file on the calling thread.
+     *
+     * @param fileName file to write
+     * @throws IOException if the checkpoint cannot be serialized or written
+     */
+    public void save(String fileName) throws IOException {
+        write(toBytes(), fileName);
+    }
+
+    /**
+     * @param fileName a checkpoint written by save() or by a running simulation
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or was written by a different version of the
+     * simulator
+     */
+    public static SimulationCheckpoint load(String fileName) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new GZIPInputStream(new BufferedInputStream(new FileInputStream(fileName))))) {
+            return (SimulationCheckpoint) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(fileName + " is not a checkpoint of this simulator", e);
+        }
+    }
+}
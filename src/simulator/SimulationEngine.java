@@ -0,0 +1,107 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import config.RobotTeamConfig;
+import config.SimulatorConfig;
+
+/**
+ * Runs a simulation without GUI. The cycles are run back to back on the calling thread, there is
+ * no Swing timer and no window, so it also works on machines without a display.
+ *
+ * @author Christian Clausen
+ */
+public class SimulationEngine implements Runnable {
+
+    private final SimulationFramework simulation;
+    private volatile boolean stopRequested = false;
+    private boolean finished = false;
+
+    public SimulationEngine(RobotTeamConfig robotTeamConfig, SimulatorConfig simConfig) {
+        this(robotTeamConfig, simConfig, null);
+    }
+
+    /**
+     * @param robotTeamConfig the robot team
+     * @param simConfig the simulator configuration
+     * @param observer notified after every cycle and when the run is complete, may be null
+     */
+    public SimulationEngine(RobotTeamConfig robotTeamConfig, SimulatorConfig simConfig,
+            SimulationObserver observer) {
+        simulation = new SimulationFramework(robotTeamConfig, simConfig);
+        simulation.setObserver(observer);
+    }
+
+    /**
+     * Runs the simulation until it is complete, stop() is called or the thread is interrupted.
+     */
+    @Override
+    public void run() {
+        simulation.start();
+        try {
+            while (!finished && !stopRequested && !Thread.currentThread().isInterrupted()) {
+                finished = simulation.simulationCycle();
+            }
+        } finally {
+            if (!finished) {
+                simulation.kill();
+            }
+        }
+    }
+
+    /**
+     * Asks a running simulation to stop after the current cycle. May be called from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public SimulationFramework getSimulation() {
+        return simulation;
+    }
+}
@@ -48,6 +48,8 @@ import agents.Agent;
 import agents.ComStation;
 import agents.RealAgent;
 import agents.TeammateAgent;
+import batch.BatchJob;
+import batch.ParameterSweep;
 import communication.DataMessage;
 import communication.DirectLine;
 import communication.PropModel1;
@@ -58,24 +60,23 @@ import config.SimConstants;
 import config.SimulatorConfig;
 import environment.Environment;
 import environment.Environment.Status;
+import environment.OccupancyGrid;
 import gui.MainGUI;
+import gui.ShowSettings.ShowSettings;
+import gui.ShowSettings.ShowSettingsAgent;
 import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.Scanner;
 import javax.swing.ImageIcon;
 import javax.swing.Timer;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  *
@@ -88,9 +89,14 @@ public class SimulationFramework implements ActionListener {
     boolean isBatch;                            // Are we running a batch file
     int runNumber;
     int runNumMax;
+    String batchFilename;                       // Parameter sweep of the batch
+    List<BatchJob> batchJobs;                   // Jobs of the sweep, run one after the other
 
-    MainGUI mainGUI;                            // Allows simulator to change image, data
+    MainGUI mainGUI;                            // Allows simulator to change image, data; null if headless
     ExplorationImage image;                     // Image of environment
+    SimulationObserver observer;                // Notified of progress, may be null
+    ShowSettings showSettings;                  // What screenshots show when running headless
+    ShowSettingsAgent[] showSettingsAgents;
     private Environment env;                            // The environment (walls, obstacles)
     RealAgent[] agent;                           // The agents
     int numRobots;
@@ -100,13 +106,17 @@ public class SimulationFramework implements ActionListener {
     Polygon[] agentRange;                       // For visualization of agents' comm ranges
 
     Timer timer;                                // Drives simulation steps
-    Random random;                              // For generating random debris
+    AgentWorkerPool workerPool;                 // Steps the agents in parallel each cycle
+    CycleProfiler profiler;                     // Times the phases of each cycle; null unless profiling
+    CheckpointWriter checkpointWriter;          // Writes checkpoints in the background; null until the first one
+    Random random;                              // Seeds the agents' random generators, also for random debris
 
     int[] debrisTimer;                          // For aisleRoom random debris exercise (AAMAS2010)
 
     // Communication
     int[][] directCommTable;
     int[][] multihopCommTable;
+    Point[] commDetectionLocations;              // Where the agents were when the tables were computed
 
     // Interesting data
     int timeElapsed;
@@ -114,6 +124,7 @@ public class SimulationFramework implements ActionListener {
     double pctAreaKnownTeam;
     int avgCycleTime;
     long simStartTime;
+    int resumedCycles;                          // Cycles run before the checkpoint this run was resumed from
     int totalArea;
     double avgComStationKnowledge;
     double avgAgentKnowledge;
@@ -128,7 +139,6 @@ public class SimulationFramework implements ActionListener {
 
     public SimulationFramework(MainGUI maingui, RobotTeamConfig newRobotTeamConfig,
             SimulatorConfig newSimConfig, ExplorationImage img) {
-        random = new Random();
         mainGUI = maingui;
         image = img;
         simConfig = newSimConfig;
@@ -141,6 +151,17 @@ public class SimulationFramework implements ActionListener {
         reset();
     }
 
+    /**
+     * Creates a simulation without GUI, images are only rendered when screenshots are logged. It
+     * has no timer, the caller drives it by calling simulationCycle(), see SimulationEngine.
+     *
+     * @param newRobotTeamConfig the robot team
+     * @param newSimConfig the simulator configuration
+     */
+    public SimulationFramework(RobotTeamConfig newRobotTeamConfig, SimulatorConfig newSimConfig) {
+        this(null, newRobotTeamConfig, newSimConfig, null);
+    }
+
     private void reset() {
         pauseSimulation = false;
         env = simConfig.getEnvironment();
@@ -155,13 +176,34 @@ public class SimulationFramework implements ActionListener {
         avgCycleTime = 0;
         totalDistanceTraveled = 0;
         numSwaps = 0;
+        resumedCycles = 0;
 
-        createAgents(robotTeamConfig);
+        if (simConfig.isDeterministic()) {
+            random = new Random(simConfig.getRandomSeed());
+        } else {
+            random = new Random();
+        }
+        if (simConfig.getResumeFilename() != null) {
+            restore(simConfig.getResumeFilename());
+        } else {
+            createAgents(robotTeamConfig);
+        }
+        if (SimConstants.PROFILING) {
+            String[] agentNames = new String[agent.length];
+            for (int i = 0; i < agent.length; i++) {
+                agentNames[i] = agent[i].getName() + agent[i].getID();
+            }
+            profiler = new CycleProfiler(agentNames);
+        } else {
+            profiler = null;
+        }
 
         // Initialize Timer
-        timer = new Timer(0, this);
-        timer.setInitialDelay(SimConstants.INIT_DELAY);
-        timer.setCoalesce(true);
+        if (!isHeadless()) {
+            timer = new Timer(0, this);
+            timer.setInitialDelay(SimConstants.INIT_DELAY);
+            timer.setCoalesce(true);
+        }
 
         // Initialize Debris timing
         debrisTimer = new int[6];
@@ -178,6 +220,8 @@ public class SimulationFramework implements ActionListener {
         agent = new RealAgent[numRobots];
         TeammateAgent teammate[] = new TeammateAgent[numRobots];
         agentRange = new Polygon[numRobots];
+        commDetectionLocations = new Point[numRobots];
+        directCommTable = null;
 
         // Create BaseStation
         agent[0] = new ComStation(env.getColumns(), env.getRows(), robotTeamConfig.getRobotTeam().get(1), simConfig);
@@ -203,6 +247,19 @@ public class SimulationFramework implements ActionListener {
             agent[i].setSimFramework(this); //for logging only
         }
 
+        // Every agent gets its own generator, in agent order, so that the random decisions of a
+        // deterministic run do not depend on how the agent threads are scheduled
+        for (int i = 0; i < numRobots; i++) {
+            agent[i].setRandom(new Random(random.nextLong()));
+        }
+        if (!simConfig.isDeterministic()) {
+            // random walks keep the fixed seed they always had, shared by all agents
+            Random walkRandom = new Random(SimConstants.RANDOM_SEED);
+            for (int i = 0; i < numRobots; i++) {
+                agent[i].setWalkRandom(walkRandom);
+            }
+        }
+
         // Give each agent its teammates
         for (int i = 0; i < numRobots; i++) {
             for (int j = 0; j < numRobots; j++) {
@@ -213,6 +270,104 @@ public class SimulationFramework implements ActionListener {
         }
     }
 
+    /**
+     * Continues the run from a checkpoint. The settings of the current configuration replace those
+     * of the checkpoint, so runs forked from one warm-up can differ in their settings and logs;
+     * settings only read when the agents are created, like the exploration algorithm, keep the
+     * values of the checkpoint. If a deterministic run has a different seed than the checkpoint, the
+     * random generators of the agents are seeded again from it.
+     *
+     * @param fileName the checkpoint
+     * @throws IllegalArgumentException if the checkpoint cannot be loaded
+     */
+    private void restore(String fileName) {
+        SimulationCheckpoint checkpoint;
+        try {
+            checkpoint = SimulationCheckpoint.load(fileName);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not resume from checkpoint " + fileName + ": " + e.getMessage(), e);
+        }
+        SimulatorConfig savedConfig = checkpoint.simConfig;
+        boolean reseed = simConfig.isDeterministic() && (!savedConfig.isDeterministic()
+                || savedConfig.getRandomSeed() != simConfig.getRandomSeed());
+        savedConfig.copySettingsFrom(simConfig);
+        simConfig.releaseEnvironment(); // the checkpoint brings its own
+        simConfig = savedConfig;
+        env = simConfig.getEnvironment();
+        robotTeamConfig = checkpoint.robotTeamConfig;
+
+        timeElapsed = checkpoint.timeElapsed;
+        resumedCycles = checkpoint.timeElapsed;
+        jointAreaKnown = checkpoint.jointAreaKnown;
+        pctAreaKnownTeam = checkpoint.pctAreaKnownTeam;
+        totalArea = checkpoint.totalArea;
+        avgComStationKnowledge = checkpoint.avgComStationKnowledge;
+        avgAgentKnowledge = checkpoint.avgAgentKnowledge;
+        avgTimeLastCommand = checkpoint.avgTimeLastCommand;
+        totalDistanceTraveled = checkpoint.totalDistanceTraveled;
+        numSwaps = checkpoint.numSwaps;
+
+        agent = checkpoint.agents;
+        numRobots = agent.length;
+        agentRange = new Polygon[numRobots];
+        directCommTable = checkpoint.directCommTable;
+        multihopCommTable = checkpoint.multihopCommTable;
+        commDetectionLocations = checkpoint.commDetectionLocations;
+        for (int i = 1; i < numRobots; i++) {
+            agent[i].setSimFramework(this);
+        }
+
+        random = checkpoint.random;
+        if (reseed) {
+            random = new Random(simConfig.getRandomSeed());
+            for (int i = 0; i < numRobots; i++) {
+                agent[i].setRandom(new Random(random.nextLong()));
+                agent[i].setWalkRandom(null);
+            }
+        }
+        if (!isHeadless()) {
+            mainGUI.setRobotTeamConfig(robotTeamConfig);
+        }
+    }
+
+    /**
+     * Captures the state of the simulation. Must be called between two cycles, and the checkpoint
+     * must be saved before the next cycle runs, as it shares the state of the simulation.
+     *
+     * @return a checkpoint of the simulation
+     */
+    public SimulationCheckpoint createCheckpoint() {
+        return new SimulationCheckpoint(this);
+    }
+
+    /**
+     * Writes a checkpoint every checkpointInterval cycles. Only the serialization happens on the
+     * simulation thread, compressing and writing is left to the CheckpointWriter.
+     */
+    private void checkpoint() {
+        int interval = simConfig.getCheckpointInterval();
+        if (interval <= 0 || timeElapsed % interval != 0) {
+            return;
+        }
+        String fileName = simConfig.getCheckpointDirname() + "checkpoint_" + timeElapsed + ".ckpt";
+        try {
+            byte[] serialized = createCheckpoint().toBytes();
+            if (checkpointWriter == null) {
+                checkpointWriter = new CheckpointWriter();
+            }
+            checkpointWriter.submit(serialized, fileName);
+        } catch (IOException e) {
+            System.err.println(this.toString() + "Could not create checkpoint at cycle " + timeElapsed + ": " + e);
+        }
+    }
+
+    private void closeCheckpointWriter() {
+        if (checkpointWriter != null) {
+            checkpointWriter.close();
+            checkpointWriter = null;
+        }
+    }
+
     public int getTotalArea() {
         return totalArea;
     }
@@ -225,6 +380,26 @@ public class SimulationFramework implements ActionListener {
         return timeElapsed;
     }
 
+    public double getPctAreaKnownTeam() {
+        return pctAreaKnownTeam;
+    }
+
+    public int getAvgCycleTime() {
+        return avgCycleTime;
+    }
+
+    public RealAgent[] getAgents() {
+        return agent;
+    }
+
+    public boolean isHeadless() {
+        return mainGUI == null;
+    }
+
+    public void setObserver(SimulationObserver observer) {
+        this.observer = observer;
+    }
+
     //used for checking if area has been double-sensed, for logging stats only
     public boolean hasCellBeenSensedByAnyAgent(int x, int y) {
         for (int i = 1; i < numRobots; i++) {
@@ -239,6 +414,8 @@ public class SimulationFramework implements ActionListener {
         if (timeElapsed == 1) {
             simStartTime = System.currentTimeMillis();
         }
+        long cycleStart = profiler == null ? 0 : System.nanoTime();
+        long phaseStart = cycleStart;
         //set exploration goals at the start of the mission
         if (timeElapsed == 0) {
             for (int i = 0; i < numRobots; i++) {
@@ -256,20 +433,29 @@ public class SimulationFramework implements ActionListener {
                 }
             }
         }
+        phaseStart = profile(CycleProfiler.Phase.DETECT_COMMUNICATION, phaseStart);
 
         agentSteps();               // move agents, simulate sensor data
+        phaseStart = profile(CycleProfiler.Phase.AGENT_STEPS, phaseStart);
         for (int i = 0; i < numRobots; i++) {
             agent[i].flushComms();
         }
+        phaseStart = profile(CycleProfiler.Phase.FLUSH_COMMS, phaseStart);
         simulateCommunication();    // simulate communication
+        phaseStart = profile(CycleProfiler.Phase.SIMULATE_COMMUNICATION, phaseStart);
 
         if (timeElapsed % SimConstants.UPDATE_AGENT_KNOWLEDGE_INTERVAL == 0) {
             updateAgentKnowledgeData();
+            phaseStart = profile(CycleProfiler.Phase.UPDATE_AGENT_KNOWLEDGE, phaseStart);
         }
         updateGlobalData();         // update data
+        phaseStart = profile(CycleProfiler.Phase.UPDATE_GLOBAL_DATA, phaseStart);
         updateGUI();                // update GUI
 
-        mainGUI.updateRobotConfig();
+        if (!isHeadless()) {
+            mainGUI.updateRobotConfig();
+        }
+        phaseStart = profile(CycleProfiler.Phase.UPDATE_GUI, phaseStart);
         logging();                  // perform logging as required
 
         robotTeamConfig.getRobotTeam().entrySet().stream().filter((entry) -> (entry.getValue().getLoggingState())).forEach((entry) -> {
@@ -278,169 +464,101 @@ public class SimulationFramework implements ActionListener {
             logging_agent = true; //There is a logging-wish
         });
         if (logging_agent) {  //do non-agent-based logging if there is a wish to log for any robot
-            image.saveScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY, timeElapsed);
+            if (isHeadless()) {
+                logScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY);
+            } else {
+                image.saveScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY, timeElapsed);
+            }
         }
         logging_agent = false; //reset logging-wish for next cycle
+        checkpoint();
+        profile(CycleProfiler.Phase.LOGGING, phaseStart);
 
         checkPause();               // check whether user wanted to pause
-        avgCycleTime = (int) (System.currentTimeMillis() - simStartTime) / timeElapsed;
+        avgCycleTime = (int) (System.currentTimeMillis() - simStartTime) / (timeElapsed - resumedCycles);
+        if (profiler != null) {
+            profile(CycleProfiler.Phase.TOTAL, cycleStart);
+            profiler.endCycle(timeElapsed);
+        }
         return checkRunFinish(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);           // for scripting multiple runs, to max number of cycles
     }
 
-    private String readFile(String pathname) throws IOException {
-        File file = new File(pathname);
-        StringBuilder fileContents = new StringBuilder((int) file.length());
-        Scanner scanner = new Scanner(file);
-        String lineSeparator = System.getProperty("line.separator");
-
-        try {
-            while (scanner.hasNextLine()) {
-                fileContents.append(scanner.nextLine()).append(lineSeparator);
-            }
-            return fileContents.toString();
-        } finally {
-            scanner.close();
+    /**
+     * Adds the time since phaseStart to the profile of the given phase.
+     *
+     * @return the current time, start of the next phase
+     */
+    private long profile(CycleProfiler.Phase phase, long phaseStart) {
+        if (profiler == null) {
+            return 0;
         }
+        long now = System.nanoTime();
+        profiler.add(phase, now - phaseStart);
+        return now;
     }
 
-    private void updateRunConfig() {
-        // This method can be used to set up batch simulations
+    /**
+     * @return the profile of the current run, null unless SimConstants.PROFILING is set
+     */
+    public CycleProfiler getProfiler() {
+        return profiler;
+    }
 
-        //open JSON file
+    /**
+     * Prints the profile of the run that just ended and writes it next to the data log, or to the log
+     * directory if data is not logged.
+     */
+    private void writeProfile() {
+        if (profiler == null || profiler.getCycleCount() == 0) {
+            return;
+        }
+        System.out.print(profiler.report());
+        String fileName;
+        if (simConfig.logData()) {
+            fileName = simConfig.getLogDataFilename() + ".profile.csv";
+        } else {
+            fileName = SimConstants.DEFAULT_LOG_DIRECTORY + "profile_" + System.currentTimeMillis() + ".csv";
+        }
         try {
-            String json = readFile(simConfig.getBatchFilename());
-            //parse JSON
-            JSONObject obj = new JSONObject(json);
-            //set global settings
-            String baseDir = obj.getJSONObject("globalSettings").getString("baseDir");
-            String envDir = baseDir + obj.getJSONObject("globalSettings").getString("envDir");
-            //set runNumMax
-            //set appropriate local settings
-            JSONArray runs = obj.getJSONArray("runs");
-            runNumMax = runs.length();
-
-            int index = runNumber;
-            String strategy = runs.getJSONObject(index).getString("strategy");
-            switch (strategy) {
-                case "greedy":
-                    simConfig.setExpAlgorithm(SimulatorConfig.exptype.FrontierExploration);
-                    simConfig.setFrontierAlgorithm(SimulatorConfig.frontiertype.ReturnWhenComplete);
-                    break;
-                case "ratio": {
-                    String ratio = runs.getJSONObject(index).getString("ratio");
-                    boolean baseRange = Boolean.parseBoolean(runs.getJSONObject(index).getString("baseRange"));
-                    simConfig.setBaseRange(baseRange);
-                    if (baseRange) {
-                        String samplingDensity = runs.getJSONObject(index).getString("samplingDensity");
-                        simConfig.setSamplingDensity(Double.parseDouble(samplingDensity));
-                    }
-                    simConfig.setExpAlgorithm(SimulatorConfig.exptype.FrontierExploration);
-                    simConfig.setFrontierAlgorithm(SimulatorConfig.frontiertype.UtilReturn);
-                    simConfig.TARGET_INFO_RATIO = Double.parseDouble(ratio);
-                    break;
-                }
-                case "role-based": {
-                    boolean multiPoint = Boolean.parseBoolean(runs.getJSONObject(index).getString("multiPoint"));
-                    boolean baseRange = Boolean.parseBoolean(runs.getJSONObject(index).getString("baseRange"));
-                    simConfig.setBaseRange(baseRange);
-                    if (baseRange) {
-                        String samplingDensity = runs.getJSONObject(index).getString("samplingDensity");
-                        simConfig.setSamplingDensity(Double.parseDouble(samplingDensity));
-                    }
-                    String relayExplore = runs.getJSONObject(index).getString("relayExplore");
-                    String rvcalc = runs.getJSONObject(index).getString("rvcalc");
-                    simConfig.setExpAlgorithm(SimulatorConfig.exptype.RoleBasedExploration);
-                    simConfig.setRoleSwitchAllowed(true);
-                    simConfig.setReplanningAllowed(false);
-                    simConfig.setStrictRoleSwitch(false);
-                    simConfig.setUseImprovedRendezvous(rvcalc.equals("improved"));
-                    simConfig.setRelayExplore(Boolean.parseBoolean(relayExplore));
-                    if (multiPoint) {
-                        String exploreReplan = runs.getJSONObject(index).getString("exploreReplan");
-                        simConfig.setExploreReplan(Boolean.parseBoolean(exploreReplan));
-                        String tryToGetToExplorerRV = runs.getJSONObject(index).getString("tryToGetToExplorerRV");
-                        simConfig.setTryToGetToExplorerRV(Boolean.parseBoolean(tryToGetToExplorerRV));
-                        String useSingleMeetingTime = runs.getJSONObject(index).getString("useSingleMeetingTime");
-                        simConfig.setUseSingleMeetingTime(Boolean.parseBoolean(useSingleMeetingTime));
-                    } else {
-
-                    }
-                    simConfig.setRVThroughWallsEnabled(multiPoint);
-                    break;
-                }
-                default:
-                    break;
-            }
-
-            String map = runs.getJSONObject(index).getString("map");
-            String conf = runs.getJSONObject(index).getString("conf");
-            String outputDir = baseDir + runs.getJSONObject(index).getString("outputDir");
-
-            (new File(outputDir)).mkdirs();
-            (new File(outputDir + "\\screenshots")).mkdirs();
-            simConfig.setLogDataFilename(outputDir + "\\sim.txt");
-            simConfig.setLogAgentsFilename(outputDir + "\\loc.txt");
-            simConfig.setLogScreenshotsDirname(outputDir + "\\screenshots");
-            simConfig.setLogAgents(true);
-            simConfig.setLogData(true);
-            simConfig.setLogScreenshots(true);
-
-            simConfig.loadEnvironment(envDir + "\\" + map);
-            robotTeamConfig.loadConfig(envDir + "\\" + conf);
-
-            if (SimConstants.DEBUG_OUTPUT) {
-                System.out.println(simConfig.toString());
-            }
-            try (PrintWriter out = new PrintWriter(outputDir + "\\config.txt")) {
-                out.println(simConfig.toString());
-            }
-
-            mainGUI.updateFromRobotTeamConfig();
-        } catch (IOException | JSONException | NumberFormatException e) {
-
+            profiler.writeCsv(fileName);
+        } catch (IOException e) {
+            System.err.println(this.toString() + "Could not write cycle profile to " + fileName + ": " + e);
         }
+    }
 
-        /*String root = "C:\\Users\\Victor\\Documents\\uni\\actual_dphil_thesis\\experiments\\ch3\\automated\\";
-        String configs[] = {//"grid_RB_2R", "grid_greedy_2R",
-                            "lgrid_util_8r_0.2", "lgrid_util_8r_0.3",
-                            "lgrid_util_8r_0.4", "lgrid_util_8r_0.5",
-                            "lgrid_util_8r_0.6", "lgrid_util_8r_0.7",
-                            "lgrid_util_8r_0.8", "lgrid_util_8r_0.9",};
-
-        {
-            simConfig.setExpAlgorithm(exptype.FrontierExploration);
-            simConfig.setFrontierAlgorithm(frontiertype.UtilReturn);
-            simConfig.TARGET_INFO_RATIO = 0.2 + runNumber*0.1;
-            (new File(root + configs[runNumber])).mkdirs();
-            (new File(root + configs[runNumber] + "\\screenshots")).mkdirs();
-            simConfig.setLogDataFilename(root + configs[runNumber] + "\\sim.txt");
-            simConfig.setLogAgentsFilename(root + configs[runNumber] + "\\loc.txt");
-            simConfig.setLogScreenshotsDirname(root + configs[runNumber] + "\\screenshots");
-        }*/
- /*int map = 2;
-        if (runNumber == 1)
-        {
-            simConfig.loadEnvironment(root + "maps\\" +  map + ".png");
-            simConfig.setExpAlgorithm(exptype.RoleBasedExploration);
-            simConfig.setRoleSwitchAllowed(true);
-            simConfig.setReplanningAllowed(false);
-            simConfig.setStrictRoleSwitch(false);
-            simConfig.setUseImprovedRendezvous(true);
-            robotTeamConfig.loadConfig(root + "configs\\" + configs[0]);
-            simConfig.setLogDataFilename(root + "output\\sim\\" + configs[0] + ".txt");
-            simConfig.setLogAgentsFilename(root + "output\\agent\\" + configs[0] + ".txt");
-            try
-            {
-                (new File(root + "output\\video\\" + configs[0])).mkdirs();
-            } catch (Exception e)
-            {
-
+    private void updateRunConfig() {
+        // Batch simulations in the GUI run the jobs of a parameter sweep one after the other
+        if (batchJobs == null) {
+            try {
+                batchJobs = ParameterSweep.load(batchFilename).expand();
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Could not load sweep " + batchFilename + ": " + e.getMessage());
+                batchJobs = new ArrayList<>();
             }
-            simConfig.setLogScreenshotsDirname(root + "output\\video\\" + configs[0]);
+            runNumMax = batchJobs.size();
+        }
+        if (runNumber >= runNumMax) {
+            return;
         }
 
+        BatchJob job = batchJobs.get(runNumber);
+        try {
+            RobotTeamConfig jobRobotTeamConfig = job.loadRobotTeamConfig();
+            SimulatorConfig jobSimConfig = job.loadSimulatorConfig();
+            simConfig = jobSimConfig;
+            robotTeamConfig = jobRobotTeamConfig;
+        } catch (IllegalArgumentException e) {
+            System.err.println(job.getName() + ": " + e.getMessage());
+            return;
+        }
 
-        mainGUI.updateFromRobotTeamConfig();*/
+        if (SimConstants.DEBUG_OUTPUT) {
+            System.out.println(job.toString());
+            System.out.println(simConfig.toString());
+        }
+        if (!isHeadless()) {
+            mainGUI.setRobotTeamConfig(robotTeamConfig);
+        }
     }
 
     public void start() {
@@ -449,10 +567,14 @@ public class SimulationFramework implements ActionListener {
         isBatch = simConfig.getExpAlgorithm() == SimulatorConfig.exptype.BatchRun;
 
         if (isBatch) {
+            batchFilename = simConfig.getBatchFilename();
+            batchJobs = null;
             updateRunConfig(); //this should set runNumMax;
             reset();
         }
-        timer.start();
+        if (timer != null) {
+            timer.start();
+        }
         simStartTime = System.currentTimeMillis();
     }
 
@@ -462,7 +584,9 @@ public class SimulationFramework implements ActionListener {
         }
         reset();
         simStartTime = System.currentTimeMillis();
-        timer.start();
+        if (timer != null) {
+            timer.start();
+        }
     }
 
     public void takeOneStep() {
@@ -500,31 +624,51 @@ public class SimulationFramework implements ActionListener {
 
         if (timeElapsed >= SimConstants.MAXIMUM_TIME || baseStationDone() || allAgentsAtBase) {
             updateGUI();
-            timer.stop();
+            stopTimer();
+            writeProfile();
+            closeCheckpointWriter();
+            if (isBatch) {
+                simConfig.releaseEnvironment();
+            }
             runNumber++;
             if (isBatch && (runNumber < runNumMax)) {
                 restart();
             } else {
-                mainGUI.runComplete(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+                shutdownWorkerPool();
+                if (observer != null) {
+                    observer.runComplete(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+                }
+                if (!isHeadless()) {
+                    mainGUI.runComplete(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+                }
+                return true;
             }
         }
         return false;
     }
 
     public void pause() {
-        timer.stop();
+        stopTimer();
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(this.toString() + "Pausing exploration!");
         }
     }
 
     public void kill() {
-        timer.stop();
+        stopTimer();
+        shutdownWorkerPool();
+        closeCheckpointWriter();
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(this.toString() + "Resetting exploration!");
         }
     }
 
+    private void stopTimer() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
         simulationCycle();
@@ -533,74 +677,133 @@ public class SimulationFramework implements ActionListener {
     private void agentSteps() {
         agent[0].flush();
 
-        List<Thread> threads = new ArrayList<Thread>();
-        for (RealAgent agent1 : agent) {
-            if (agent1.getClass().toString().equals(ComStation.class.toString())) {
+        List<RealAgent> steppingAgents = new ArrayList<RealAgent>();
+        List<Integer> steppingIndices = new ArrayList<Integer>();
+        List<AgentStepRunnable> steps = new ArrayList<AgentStepRunnable>();
+        long[] stepTimes = profiler == null ? null : new long[agent.length];
+        for (int i = 0; i < agent.length; i++) {
+            if (agent[i] instanceof ComStation) {
                 continue;
             }
-            Runnable task = new AgentStepRunnable(agent1, simConfig, timeElapsed, env, this);
-            Thread worker = new Thread(task);
-            worker.setName(agent1.toString());
-            worker.start();
-            threads.add(worker);
+            steppingAgents.add(agent[i]);
+            steppingIndices.add(i);
+            steps.add(new AgentStepRunnable(agent[i], simConfig, timeElapsed, env));
         }
 
-        for (int i = 0; i < threads.size(); i++) {
-            try {
-                threads.get(i).join();
-            } catch (Exception e) {
-                System.err.println("Thread " + i + " threw exception " + e.getMessage());
-            }
+        // The agents move until they have to sense. Then the rays of all of them are cast at once,
+        // cut into parts so the workers can share them, and the agents move on, until all are done.
+        AgentWorkerPool pool = getWorkerPool();
+        List<Integer> active = new ArrayList<Integer>();
+        for (int s = 0; s < steps.size(); s++) {
+            active.add(s);
         }
-    }
+        boolean[] sensing = new boolean[steps.size()];
+        while (!active.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for (int s : active) {
+                AgentStepRunnable step = steps.get(s);
+                int index = steppingIndices.get(s);
+                tasks.add(() -> {
+                    long start = stepTimes == null ? 0 : System.nanoTime();
+                    try {
+                        sensing[s] = step.advance();
+                    } finally {
+                        if (stepTimes != null) {
+                            stepTimes[index] += System.nanoTime() - start;
+                        }
+                    }
+                });
+            }
+            Throwable[] failures = pool.runCycle(tasks);
+            List<Integer> scanning = new ArrayList<Integer>();
+            for (int t = 0; t < failures.length; t++) {
+                int s = active.get(t);
+                if (failures[t] != null) {
+                    agentStepFailed(steppingAgents.get(s), failures[t]);
+                } else if (sensing[s]) {
+                    scanning.add(s);
+                }
+            }
+            if (scanning.isEmpty()) {
+                break;
+            }
 
-    /**
-     * Simulates data from laser range finder
-     *
-     * @param agent the agend sensing something
-     * @param nextLoc the location the given agent will be at the moment of sensing
-     * @return
-     */
-    protected double[] findSensorData(RealAgent agent, Point nextLoc) {
-        double currRayAngle, heading;
-        int prevRayX, prevRayY;
-        int currRayX, currRayY;
-        double sensorData[] = new double[181];
-
-        if (agent.getLocation().equals(nextLoc)) {
-            heading = agent.getHeading();
-        } else {
-            heading = Math.atan2(nextLoc.y - agent.getY(), nextLoc.x - agent.getX());
+            int parts = 1;
+            if (pool.getParallelism() > 1) {
+                parts = Math.max(1, Math.min(SimConstants.MAX_RAY_PARTS,
+                        (2 * pool.getParallelism() + scanning.size() - 1) / scanning.size()));
+            }
+            tasks = new ArrayList<Runnable>();
+            long[] castTimes = new long[scanning.size() * parts];
+            for (int k = 0; k < scanning.size(); k++) {
+                RayCaster rayCaster = steps.get(scanning.get(k)).getRayCaster();
+                for (int p = 0; p < parts; p++) {
+                    int fromRay = p * RayCaster.NUM_RAYS / parts;
+                    int toRay = (p + 1) * RayCaster.NUM_RAYS / parts;
+                    int task = k * parts + p;
+                    tasks.add(() -> {
+                        long start = stepTimes == null ? 0 : System.nanoTime();
+                        try {
+                            rayCaster.cast(fromRay, toRay);
+                        } finally {
+                            if (stepTimes != null) {
+                                castTimes[task] = System.nanoTime() - start;
+                            }
+                        }
+                    });
+                }
+            }
+            failures = pool.runCycle(tasks);
+            active = new ArrayList<Integer>();
+            for (int k = 0; k < scanning.size(); k++) {
+                int s = scanning.get(k);
+                Throwable failure = null;
+                for (int p = 0; p < parts; p++) {
+                    if (failure == null) {
+                        failure = failures[k * parts + p];
+                    }
+                    if (stepTimes != null) {
+                        stepTimes[steppingIndices.get(s)] += castTimes[k * parts + p];
+                    }
+                }
+                if (failure != null) {
+                    agentStepFailed(steppingAgents.get(s), failure);
+                } else {
+                    active.add(s);
+                }
+            }
         }
 
-        //For every degree
-        for (int i = 0; i <= 180; i += 1) {
-            prevRayX = nextLoc.x;
-            prevRayY = nextLoc.y;
-
-            currRayAngle = heading - Math.PI / 2 + Math.PI / 180 * i;
+        if (stepTimes != null) {
+            for (int index : steppingIndices) {
+                profiler.addAgentStep(index, stepTimes[index]);
+            }
+        }
+    }
 
-            for (double m = 1; m <= agent.getSenseRange(); m++) {
-                currRayX = nextLoc.x + (int) (m * Math.cos(currRayAngle));
-                currRayY = nextLoc.y + (int) (m * Math.sin(currRayAngle));
+    private void agentStepFailed(RealAgent failed, Throwable failure) {
+        System.err.println(this.toString() + failed + " failed to step at cycle " + timeElapsed
+                + ": " + failure);
+        failure.printStackTrace();
+        failed.setEnvError(true);
+    }
 
-                if (!env.locationExists(currRayX, currRayY)) {
-                    sensorData[i] = nextLoc.distance(prevRayX, prevRayY);
-                    break;
-                } else if (env.statusAt(currRayX, currRayY).ordinal() >= Environment.Status.obstacle.ordinal()) {
-                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
-                    break;
-                } else if (m >= agent.getSenseRange()) {
-                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
-                    break;
-                } else {
-                    prevRayX = currRayX;
-                    prevRayY = currRayY;
-                }
+    private AgentWorkerPool getWorkerPool() {
+        if (workerPool == null || workerPool.isShutdown()) {
+            int threads = simConfig.getAgentThreads();
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
             }
+            workerPool = new AgentWorkerPool(threads);
         }
+        return workerPool;
+    }
 
-        return sensorData;
+    private void shutdownWorkerPool() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+            workerPool = null;
+        }
     }
 
     /**
@@ -656,6 +859,23 @@ public class SimulationFramework implements ActionListener {
     }
 
     private void detectCommunication() {
+        if (simConfig.isReuseIdleResults() && !agentsMovedSinceCommDetection()) {
+            // nobody moved, so the links of the last cycle still hold
+            if (simConfig.getCommModel() == SimulatorConfig.commtype.PropModel1) {
+                for (int i = 0; i < numRobots; i++) {
+                    if (!showCommRange(i)) {
+                        agentRange[i] = null;
+                    } else if (agentRange[i] == null) {
+                        agentRange[i] = PropModel1.getRange(env, agent[i]);
+                    }
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < numRobots; i++) {
+            commDetectionLocations[i] = agent[i].getLocation();
+        }
+
         directCommTable = new int[numRobots][numRobots];
         multihopCommTable = new int[numRobots][numRobots];
 
@@ -663,7 +883,7 @@ public class SimulationFramework implements ActionListener {
             case StaticCircle:
                 directCommTable = StaticCircle.detectCommunication(env, agent);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = null;
                     }
                 }
@@ -671,7 +891,7 @@ public class SimulationFramework implements ActionListener {
             case DirectLine:
                 directCommTable = DirectLine.detectCommunication(env, agent);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = null;
                     }
                 }
@@ -679,7 +899,7 @@ public class SimulationFramework implements ActionListener {
             case PropModel1:
                 directCommTable = PropModel1.detectCommunication(env, agent);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = PropModel1.getRange(env, agent[i]);
                     } else {
                         agentRange[i] = null;
@@ -692,6 +912,22 @@ public class SimulationFramework implements ActionListener {
         detectMultiHopLinks();
     }
 
+    private boolean agentsMovedSinceCommDetection() {
+        if (directCommTable == null) {
+            return true;
+        }
+        for (int i = 0; i < numRobots; i++) {
+            if (!agent[i].getLocation().equals(commDetectionLocations[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean showCommRange(int i) {
+        return !isHeadless() && mainGUI.getRobotPanel(i).showCommRange();
+    }
+
     private void logging() {
         // Note, logging of data is performed in updateGlobalData, should change to here when i have the time
 
@@ -715,10 +951,12 @@ public class SimulationFramework implements ActionListener {
 
             outFile.print(timeElapsed + " ");
             for (int i = 0; i < numRobots; i++) {
+                // agents that have not planned a path yet, like the base station, log their location as goal
+                Point goal = agent[i].getPath() == null ? agent[i].getLocation() : agent[i].getCurrentGoal();
                 outFile.print(agent[i].getX() + " ");
                 outFile.print(agent[i].getY() + " ");
-                outFile.print(agent[i].getCurrentGoal().getX() + " ");
-                outFile.print(agent[i].getCurrentGoal().getY() + " ");
+                outFile.print(goal.getX() + " ");
+                outFile.print(goal.getY() + " ");
                 outFile.print(agent[i].getRole() + " ");
                 outFile.print(agent[i].getState() + " ");
                 outFile.print(agent[i].totalSpareTime + " ");
@@ -730,16 +968,49 @@ public class SimulationFramework implements ActionListener {
     }
 
     private void logScreenshot() {
-        image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
-        image.saveScreenshot(simConfig.getLogScreenshotsDirname(), timeElapsed);
+        logScreenshot(simConfig.getLogScreenshotsDirname());
     }
 
     public void logScreenshot(String dirname) {
-        image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
+        if (isHeadless()) {
+            renderHeadlessImage();
+        } else {
+            image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
+        }
         image.saveScreenshot(dirname, timeElapsed);
     }
 
+    /**
+     * Renders the image for a screenshot without GUI, using the same defaults the robot panels of
+     * the GUI start with. Communication ranges are only calculated here, not every cycle.
+     */
+    private void renderHeadlessImage() {
+        if (image == null) {
+            image = new ExplorationImage(env);
+            showSettings = new ShowSettings();
+            showSettings.showEnv = true;
+            showSettingsAgents = new ShowSettingsAgent[numRobots];
+            for (int i = 0; i < numRobots; i++) {
+                showSettingsAgents[i] = new ShowSettingsAgent();
+                showSettingsAgents[i].showAgent = true;
+                showSettingsAgents[i].showPath = true;
+                showSettingsAgents[i].showFreeSpace = true;
+                showSettingsAgents[i].showFrontiers = true;
+                showSettingsAgents[i].showCommRange = true;
+            }
+        }
+        if (simConfig.getCommModel() == SimulatorConfig.commtype.PropModel1) {
+            for (int i = 0; i < numRobots; i++) {
+                agentRange[i] = PropModel1.getRange(env, agent[i]);
+            }
+        }
+        image.fullUpdate(showSettings, showSettingsAgents, env, agent, agentRange);
+    }
+
     public void simRateChanged(int newSimRate, MainGUI.runMode runmode) {
+        if (timer == null) {
+            return;
+        }
         if (newSimRate == 0) {
             timer.stop();
         } else {
@@ -753,12 +1024,25 @@ public class SimulationFramework implements ActionListener {
     }
 
     private void updateGUI() {
+        if (observer != null) {
+            observer.cycleComplete(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+        }
+        if (isHeadless()) {
+            // nothing renders the dirty cells, drop them so they do not pile up
+            for (RealAgent currAgent : agent) {
+                currAgent.resetDirtyCells();
+            }
+            return;
+        }
         mainGUI.updateFromData(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
         updateImage(false); //was false
 
     }
 
     public void updateImage(boolean full) {
+        if (isHeadless()) {
+            return;
+        }
 
         if (full || this.force_full_update) {
             image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
@@ -771,13 +1055,22 @@ public class SimulationFramework implements ActionListener {
 
     public int getTrueJointAreaKnown() {
         int known = 0;
-        for (int j = 0; j < env.getColumns(); j++) {
-            for (int k = 0; k < env.getRows(); k++) {
-                for (int i = 0; i < agent.length; i++) {
-                    if ((agent[i].getOccupancyGrid().freeSpaceAt(j, k))
-                            && (env.statusAt(j, k).ordinal() < Status.obstacle.ordinal())) {
+        long[] row = new long[agent[0].getOccupancyGrid().getWordsPerRow()];
+        long[] free = new long[row.length];
+        for (int k = 0; k < env.getRows(); k++) {
+            // cells free in any of the grids
+            Arrays.fill(free, 0);
+            for (int i = 0; i < agent.length; i++) {
+                agent[i].getOccupancyGrid().getPlaneRow(OccupancyGrid.OccGridBit.FreeSpace, k, row);
+                for (int w = 0; w < row.length; w++) {
+                    free[w] |= row[w];
+                }
+            }
+            for (int w = 0; w < free.length; w++) {
+                for (long bits = free[w]; bits != 0; bits &= bits - 1) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (env.statusAt(j, k).ordinal() < Status.obstacle.ordinal()) {
                         known++; //"true" area known, excluding false empty spaces
-                        i = agent.length;
                     }
                 }
             }